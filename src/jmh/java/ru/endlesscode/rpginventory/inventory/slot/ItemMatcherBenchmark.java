@@ -0,0 +1,112 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory.slot;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares compiled matcher with parsing of patterns on every check.
+ * Patterns are sized like item lists of the default slots.yml.
+ */
+@State(Scope.Benchmark)
+public class ItemMatcherBenchmark {
+
+    private static final String[] MATERIALS = {
+            "LEATHER_HELMET", "CHAINMAIL_HELMET", "IRON_HELMET", "GOLDEN_HELMET", "DIAMOND_HELMET",
+            "NETHERITE_HELMET", "TURTLE_HELMET", "WOODEN_SWORD", "STONE_SWORD", "IRON_SWORD",
+            "GOLDEN_SWORD", "DIAMOND_SWORD", "NETHERITE_SWORD", "WOODEN_AXE", "STONE_AXE",
+            "IRON_AXE", "GOLDEN_AXE", "DIAMOND_AXE", "NETHERITE_AXE", "BOW", "CROSSBOW", "TRIDENT",
+    };
+
+    private List<String> patterns;
+    private ItemMatcher matcher;
+    private Material[] items;
+
+    @Setup
+    public void setUp() {
+        patterns = new ArrayList<>();
+        for (String material : MATERIALS) {
+            patterns.add(material);
+        }
+        patterns.add("DIAMOND_HOE:1-20");
+        patterns.add("DIAMOND_HOE:25");
+        patterns.add("DIAMOND_HOE:30-40");
+
+        matcher = ItemMatcher.compile(patterns);
+        items = new Material[]{
+                Material.LEATHER_HELMET, Material.TRIDENT, Material.DIAMOND_HOE, Material.STONE, Material.CROSSBOW,
+        };
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (Material item : items) {
+            blackhole.consume(matcher.matches(item, 33));
+        }
+    }
+
+    @Benchmark
+    public void parsedOnEveryCheck(Blackhole blackhole) {
+        for (Material item : items) {
+            blackhole.consume(searchItem(patterns, item, 33));
+        }
+    }
+
+    /**
+     * Previous implementation of the slot items search.
+     */
+    private static boolean searchItem(List<String> materialList, Material material, int textureData) {
+        for (String pattern : materialList) {
+            String[] data = pattern.split(":");
+
+            if (pattern.equals("ALL")) {
+                return true;
+            }
+
+            if (!material.name().equals(data[0])) {
+                continue;
+            }
+
+            if (data.length > 1) {
+                String[] borders = data[1].split("-");
+                if (borders.length == 1 && textureData != Integer.parseInt(data[1])) {
+                    continue;
+                } else if (borders.length == 2) {
+                    int min = Integer.parseInt(borders[0]);
+                    int max = Integer.parseInt(borders[1]);
+                    if (textureData < Math.min(min, max) || textureData > Math.max(min, max)) {
+                        continue;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+}
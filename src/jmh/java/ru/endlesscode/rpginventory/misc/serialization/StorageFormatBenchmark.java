@@ -0,0 +1,227 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.configuration.serialization.DelegateDeserialization;
+import org.bukkit.configuration.serialization.SerializableAs;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares binary and YAML storage formats, compressed the same way as they are stored.
+ * Inventory is sized like the default slots.yml with all slots filled.
+ * <p>
+ * Real item meta is implemented by the server, so items carry {@link BenchmarkMeta} with the same
+ * structure as serialized meta of a typical custom item: name, lore, enchantments and tags.
+ */
+@State(Scope.Benchmark)
+public class StorageFormatBenchmark {
+
+    private static final Material[] MATERIALS = {
+            Material.DIAMOND_HELMET, Material.DIAMOND_CHESTPLATE, Material.DIAMOND_LEGGINGS, Material.DIAMOND_BOOTS,
+            Material.DIAMOND_SWORD, Material.SHIELD, Material.BOW, Material.ARROW, Material.TOTEM_OF_UNDYING,
+            Material.GOLD_NUGGET, Material.EMERALD, Material.ELYTRA,
+    };
+
+    private InventorySnapshot snapshot;
+    private byte[] binaryData;
+    private byte[] yamlData;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setUp() throws IOException {
+        UnsafeValues unsafe = Mockito.mock(UnsafeValues.class);
+        Mockito.when(unsafe.getDataVersion()).thenReturn(2975);
+        Mockito.when(unsafe.getMaterial(ArgumentMatchers.anyString(), ArgumentMatchers.anyInt()))
+                .thenAnswer(invocation -> Material.getMaterial(invocation.getArgument(0)));
+
+        ItemFactory itemFactory = Mockito.mock(ItemFactory.class);
+        Mockito.when(itemFactory.equals(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(true);
+
+        Server server = Mockito.mock(Server.class);
+        Mockito.when(server.getLogger()).thenReturn(Logger.getLogger("RPGInventoryBenchmark"));
+        Mockito.when(server.getUnsafe()).thenReturn(unsafe);
+        Mockito.when(server.getItemFactory()).thenReturn(itemFactory);
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(server);
+        }
+
+        ConfigurationSerialization.registerClass(InventorySnapshot.class);
+        ConfigurationSerialization.registerClass(SlotSnapshot.class);
+        ConfigurationSerialization.registerClass(BenchmarkMeta.class);
+
+        Map<String, SlotSnapshot> slots = new LinkedHashMap<>();
+        for (Material material : MATERIALS) {
+            List<ItemStack> items = new ArrayList<>();
+            items.add(new BenchmarkItem(material));
+            items.add(new BenchmarkItem(material));
+            String name = material.name().toLowerCase();
+            slots.put(name, new SlotSnapshot(name, "GENERIC", true, items));
+        }
+        snapshot = new InventorySnapshot(slots, MATERIALS.length);
+
+        binaryData = saveBinary();
+        yamlData = saveYaml();
+        System.out.printf("%nStored size: binary %d bytes, YAML %d bytes%n", binaryData.length, yamlData.length);
+    }
+
+    @Benchmark
+    public byte[] saveBinary() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream stream = new FastGZIPOutputStream(bytes)) {
+            BinarySerialization.save(snapshot, stream);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] saveYaml() throws IOException {
+        YamlConfiguration serializedData = new YamlConfiguration();
+        serializedData.set(Serialization.ROOT_TAG, snapshot);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStreamWriter stream = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            stream.write(serializedData.saveToString());
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object loadBinary() throws IOException {
+        try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(binaryData))) {
+            return BinarySerialization.load(stream);
+        }
+    }
+
+    @Benchmark
+    public Object loadYaml() throws IOException, InvalidConfigurationException {
+        YamlConfiguration serializedData = new YamlConfiguration();
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(yamlData)),
+                StandardCharsets.UTF_8)) {
+            serializedData.load(reader);
+        }
+        return serializedData.get(Serialization.ROOT_TAG);
+    }
+
+    /**
+     * Compression used for binary format by {@link Serialization}.
+     */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+        FastGZIPOutputStream(@NotNull ByteArrayOutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Item with meta, it is deserialized as usual {@link ItemStack}.
+     */
+    @DelegateDeserialization(ItemStack.class)
+    public static class BenchmarkItem extends ItemStack {
+        BenchmarkItem(@NotNull Material type) {
+            super(type);
+        }
+
+        @NotNull
+        @Override
+        public Map<String, Object> serialize() {
+            Map<String, Object> result = super.serialize();
+            result.put("meta", new BenchmarkMeta(getType()));
+            return result;
+        }
+    }
+
+    @SerializableAs("BenchmarkMeta")
+    public static class BenchmarkMeta implements ConfigurationSerializable {
+        private final Map<String, Object> values;
+
+        BenchmarkMeta(@NotNull Material type) {
+            Map<String, Object> enchants = new LinkedHashMap<>();
+            enchants.put("DURABILITY", 3);
+            enchants.put("MENDING", 1);
+
+            Map<String, Object> tags = new LinkedHashMap<>();
+            tags.put("rpginventory:rpginv.custom_item", type.name().toLowerCase() + "_of_the_hero");
+
+            values = new LinkedHashMap<>();
+            values.put("meta-type", "UNSPECIFIC");
+            values.put("display-name", "{\"extra\":[{\"color\":\"gold\",\"text\":\"Legendary item\"}],\"text\":\"\"}");
+            values.put("lore", Arrays.asList(
+                    "{\"extra\":[{\"color\":\"gray\",\"text\":\"Damage: 10-15\"}],\"text\":\"\"}",
+                    "{\"extra\":[{\"color\":\"gray\",\"text\":\"Crit chance: 5%\"}],\"text\":\"\"}",
+                    "{\"extra\":[{\"color\":\"gray\",\"text\":\"Level: 20\"}],\"text\":\"\"}"
+            ));
+            values.put("enchants", enchants);
+            values.put("custom-model-data", 1001);
+            values.put("Damage", 12);
+            values.put("PublicBukkitValues", tags);
+        }
+
+        private BenchmarkMeta(@NotNull Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @SuppressWarnings("unused") // Used by ConfigurationSerialization
+        @NotNull
+        public static BenchmarkMeta deserialize(@NotNull Map<String, Object> map) {
+            Map<String, Object> values = new LinkedHashMap<>(map);
+            values.remove(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+            return new BenchmarkMeta(values);
+        }
+
+        @NotNull
+        @Override
+        public Map<String, Object> serialize() {
+            return values;
+        }
+    }
+}
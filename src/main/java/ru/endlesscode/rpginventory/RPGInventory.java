@@ -44,6 +44,7 @@ import ru.endlesscode.rpginventory.compat.mimic.RPGInventoryItemsRegistry;
 import ru.endlesscode.rpginventory.compat.mimic.RPGInventoryPlayerInventory;
 import ru.endlesscode.rpginventory.compat.mypet.MyPetManager;
 import ru.endlesscode.rpginventory.event.listener.*;
+import ru.endlesscode.rpginventory.event.updater.StatsUpdater;
 import ru.endlesscode.rpginventory.inventory.InventoryLocker;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
@@ -54,6 +55,12 @@ import ru.endlesscode.rpginventory.misc.FileLanguage;
 import ru.endlesscode.rpginventory.misc.Updater;
 import ru.endlesscode.rpginventory.misc.config.Config;
 import ru.endlesscode.rpginventory.misc.config.ConfigUpdater;
+import ru.endlesscode.rpginventory.misc.config.StorageType;
+import ru.endlesscode.rpginventory.misc.serialization.InventoryJournal;
+import ru.endlesscode.rpginventory.misc.serialization.LegacyConverter;
+import ru.endlesscode.rpginventory.misc.serialization.SaveQueue;
+import ru.endlesscode.rpginventory.misc.serialization.StorageMigrator;
+import ru.endlesscode.rpginventory.misc.serialization.StoragePaths;
 import ru.endlesscode.rpginventory.misc.serialization.Serialization;
 import ru.endlesscode.rpginventory.pet.PetManager;
 import ru.endlesscode.rpginventory.resourcepack.ResourcePackModule;
@@ -63,6 +70,7 @@ import ru.endlesscode.rpginventory.utils.StringUtils;
 import ru.endlesscode.rpginventory.utils.Version;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.logging.Logger;
 
 public class RPGInventory extends JavaPlugin {
@@ -149,12 +157,26 @@ public class RPGInventory extends JavaPlugin {
 
         loadConfigs();
         Serialization.registerTypes();
+        SaveQueue.init(Config.getConfig().getInt("storage.save-threads", 2));
+        StoragePaths.init(getDataPath(), Config.storageLayout);
+        Serialization.initStorage(Config.storageType, getDataPath());
+        if (Config.getConfig().getBoolean("storage.journal", true)) {
+            InventoryJournal.init(getDataPath().resolve("inventories.journal"));
+        }
+        if (Config.storageType == StorageType.FILE) {
+            new StorageMigrator().runTaskTimerAsynchronously(this, StorageMigrator.PERIOD_TICKS, StorageMigrator.PERIOD_TICKS);
+        }
 
         hookPlaceholderApi();
         if (!loadModules()) {
             getPluginLoader().disablePlugin(this);
             return;
         }
+        if (Config.getConfig().getBoolean("storage.convert-legacy-on-start", false)) {
+            // Nothing is loaded yet, so the conversion is safe
+            LegacyConverter.convertAll(Collections.emptySet(), getLegacyConversionReport());
+        }
+        StatsUpdater.start(this);
         loadPlayers();
         //startMetrics();
 
@@ -300,6 +322,11 @@ public class RPGInventory extends JavaPlugin {
     public void onDisable() {
         StringUtils.Placeholders.unregisterPlaceholders();
         saveData();
+        StatsUpdater.stop();
+        InventoryJournal.shutdown();
+        SaveQueue.shutdown();
+        Serialization.closeStorage();
+        Log.i("Inventories and backpacks loaded since start: {0}", Serialization.getLoadCounters());
     }
 
     private void saveData() {
@@ -400,6 +427,11 @@ public class RPGInventory extends JavaPlugin {
         }
     }
 
+    @NotNull
+    public Path getLegacyConversionReport() {
+        return getDataPath().resolve("legacy-conversion-report.txt");
+    }
+
     @NotNull
     public Path getDataPath() {
         return getDataFolder().toPath();
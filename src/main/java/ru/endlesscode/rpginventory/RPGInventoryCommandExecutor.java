@@ -26,16 +26,21 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
 import ru.endlesscode.rpginventory.api.InventoryAPI;
 import ru.endlesscode.rpginventory.event.ItemCommandEvent;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
 import ru.endlesscode.rpginventory.item.ItemManager;
+import ru.endlesscode.rpginventory.misc.serialization.LegacyConverter;
 import ru.endlesscode.rpginventory.pet.PetManager;
 import ru.endlesscode.rpginventory.utils.ItemUtils;
 import ru.endlesscode.rpginventory.utils.StringUtils;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Created by OsipXD on 28.08.2015
@@ -74,6 +79,9 @@ final class RPGInventoryCommandExecutor implements CommandExecutor {
                 case 'r': // reload
                     this.reloadPlugin(sender);
                     return true;
+                case 'c': // convert
+                    this.convertLegacyData(sender);
+                    return true;
             }
         }
 
@@ -241,6 +249,31 @@ final class RPGInventoryCommandExecutor implements CommandExecutor {
         sender.sendMessage(StringUtils.coloredLine("&e[RPGInventory] Plugin successfully reloaded!"));
     }
 
+    private void convertLegacyData(CommandSender sender) {
+        if (LegacyConverter.isRunning()) {
+            sender.sendMessage(StringUtils.coloredLine("&cConversion is already running."));
+            return;
+        }
+
+        // Loaded inventories and backpacks will be saved in the current format anyway
+        Set<UUID> loaded = InventoryManager.getLoadedUUIDs();
+        loaded.addAll(BackpackManager.getLoadedBackpacks());
+
+        RPGInventory instance = RPGInventory.getInstance();
+        Path report = instance.getLegacyConversionReport();
+        sender.sendMessage(StringUtils.coloredLine("&e[RPGInventory] Converting legacy data, see console for progress..."));
+        new TrackedBukkitRunnable() {
+            @Override
+            public void run() {
+                String summary = LegacyConverter.convertAll(loaded, report);
+                if (summary != null) {
+                    sender.sendMessage(StringUtils.coloredLine("&e[RPGInventory] Conversion finished: " + summary));
+                    sender.sendMessage(StringUtils.coloredLine("&e[RPGInventory] Report: " + report.getFileName()));
+                }
+            }
+        }.runTaskAsynchronously(instance);
+    }
+
     private void printHelp(CommandSender sender) {
         sender.sendMessage(StringUtils.coloredLine("&3===================&b[&eRPGInventory&b]&3====================="));
         sender.sendMessage(StringUtils.coloredLine("&8[] &7Required, &8() &7Optional"));
@@ -253,6 +286,7 @@ final class RPGInventoryCommandExecutor implements CommandExecutor {
 
         if (RPGInventory.getPermissions().has(sender, "rpginventory.admin")) {
             sender.sendMessage(StringUtils.coloredLine("&6rpginv reload &7- reload config"));
+            sender.sendMessage(StringUtils.coloredLine("&6rpginv convert &7- convert data of old versions to the current format"));
             sender.sendMessage(StringUtils.coloredLine("&6rpginv [&epets&6|&efood&6|&eitems&6|&ebackpacks&6] &7- show list of pets, items etc."));
             sender.sendMessage(StringUtils.coloredLine("&6rpginv food [&eplayer&6] [&efoodId&6] (&eamount&6) &7- gives food to player"));
             sender.sendMessage(StringUtils.coloredLine("&6rpginv pet [&eplayer&6] [&epetId&6] &7- gives pet to player"));
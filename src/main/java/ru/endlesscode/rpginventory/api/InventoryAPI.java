@@ -26,12 +26,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.PlayerWrapper;
-import ru.endlesscode.rpginventory.inventory.slot.Slot;
-import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
-import ru.endlesscode.rpginventory.utils.ItemUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Created by OsipXD on 03.09.2015
@@ -60,22 +58,20 @@ public class InventoryAPI {
     @NotNull
     public static List<ItemStack> getPassiveItems(@Nullable Player player) {
         List<ItemStack> passiveItems = new ArrayList<>();
+        forEachPassiveItem(player, passiveItems::add);
+        return passiveItems;
+    }
 
-        if (!InventoryManager.playerIsLoaded(player)) {
-            return passiveItems;
-        }
-
-        Inventory inventory = InventoryManager.get(player).getInventory();
-        for (Slot slot : SlotManager.instance().getPassiveSlots()) {
-            for (int slotId : slot.getSlotIds()) {
-                ItemStack item = inventory.getItem(slotId);
-                if (ItemUtils.isNotEmpty(item) && !InventoryManager.isEmptySlot(item)) {
-                    passiveItems.add(item);
-                }
-            }
+    /**
+     * Passes all passive items from RPGInventory of specific player to the action, without creating of a list.
+     *
+     * @param player - the player
+     * @param action - action for every not null passive item
+     */
+    public static void forEachPassiveItem(@Nullable Player player, @NotNull Consumer<ItemStack> action) {
+        if (InventoryManager.playerIsLoaded(player)) {
+            InventoryManager.get(player).forEachPassiveItem(action);
         }
-
-        return passiveItems;
     }
 
     /**
@@ -87,20 +83,19 @@ public class InventoryAPI {
     @NotNull
     public static List<ItemStack> getActiveItems(@Nullable Player player) {
         List<ItemStack> activeItems = new ArrayList<>();
+        forEachActiveItem(player, activeItems::add);
+        return activeItems;
+    }
 
-        if (!InventoryManager.playerIsLoaded(player)) {
-            return activeItems;
-        }
-
-        Inventory inventory = InventoryManager.get(player).getInventory();
-        for (Slot slot : SlotManager.instance().getActiveSlots()) {
-            ItemStack item = inventory.getItem(slot.getSlotId());
-
-            if (ItemUtils.isNotEmpty(item) && !InventoryManager.isQuickEmptySlot(item)) {
-                activeItems.add(item);
-            }
+    /**
+     * Passes all active items from RPGInventory of specific player to the action, without creating of a list.
+     *
+     * @param player - the player
+     * @param action - action for every not null active item
+     */
+    public static void forEachActiveItem(@Nullable Player player, @NotNull Consumer<ItemStack> action) {
+        if (InventoryManager.playerIsLoaded(player)) {
+            InventoryManager.get(player).forEachActiveItem(action);
         }
-
-        return activeItems;
     }
 }
@@ -1,12 +1,20 @@
 package ru.endlesscode.rpginventory.compat;
 
 import org.bukkit.Material;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.inventory.EquipmentSlot;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 
 public class MaterialCompat {
+
+    private static boolean isDefaultAttributeModifiersAvailable = true;
+
     @NotNull
     public static Material getMaterial(String name) {
         return Objects.requireNonNull(getMaterialOrNull(name));
@@ -31,4 +39,23 @@ public class MaterialCompat {
 
         return material;
     }
+
+    /**
+     * Returns attribute modifiers that the material has by default in the given slot.
+     * The method is available since 1.16.4, on previous versions modifiers are empty.
+     */
+    @NotNull
+    public static Collection<AttributeModifier> getDefaultAttributeModifiers(@NotNull Material material,
+                                                                             @NotNull EquipmentSlot slot,
+                                                                             @NotNull Attribute attribute) {
+        if (isDefaultAttributeModifiersAvailable) {
+            try {
+                return material.getDefaultAttributeModifiers(slot).get(attribute);
+            } catch (NoSuchMethodError ex) {
+                isDefaultAttributeModifiersAvailable = false;
+            }
+        }
+
+        return Collections.emptyList();
+    }
 }
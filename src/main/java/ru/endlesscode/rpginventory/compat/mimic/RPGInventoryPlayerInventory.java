@@ -4,12 +4,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import ru.endlesscode.mimic.inventory.BukkitPlayerInventory;
-import ru.endlesscode.rpginventory.api.InventoryAPI;
-import ru.endlesscode.rpginventory.inventory.slot.Slot;
-import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
+import ru.endlesscode.rpginventory.inventory.InventoryManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @SuppressWarnings("UnstableApiUsage")
 public class RPGInventoryPlayerInventory extends BukkitPlayerInventory {
@@ -21,18 +20,25 @@ public class RPGInventoryPlayerInventory extends BukkitPlayerInventory {
     @NotNull
     @Override
     public List<ItemStack> getEquippedItems() {
-        List<ItemStack> passiveItems = InventoryAPI.getPassiveItems(getPlayer());
-        return collectEquippedItems(passiveItems);
+        Player player = getPlayer();
+        if (!InventoryManager.playerIsLoaded(player)) {
+            return collectEquippedItems(Collections.emptyList());
+        }
+
+        return collectEquippedItems(InventoryManager.get(player).getPassiveItems());
     }
 
     @NotNull
     @Override
     public List<ItemStack> getStoredItems() {
-        List<Slot> quickSlots = SlotManager.instance().getQuickSlots();
+        List<ItemStack> storedItems = collectStoredItems();
+        List<ItemStack> items = new ArrayList<>(storedItems.size());
+        for (ItemStack item : storedItems) {
+            if (!InventoryManager.isQuickEmptySlot(item)) {
+                items.add(item);
+            }
+        }
 
-        return collectStoredItems()
-                .stream()
-                .filter(item -> quickSlots.stream().noneMatch(slot -> slot.isCup(item)))
-                .collect(Collectors.toList());
+        return items;
     }
 }
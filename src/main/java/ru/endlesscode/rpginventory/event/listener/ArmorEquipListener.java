@@ -42,6 +42,7 @@ import ru.endlesscode.rpginventory.inventory.ArmorType;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.slot.Slot;
 import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
+import ru.endlesscode.rpginventory.item.ItemManager;
 import ru.endlesscode.rpginventory.misc.config.Config;
 import ru.endlesscode.rpginventory.misc.config.VanillaSlotAction;
 import ru.endlesscode.rpginventory.utils.InventoryUtils;
@@ -185,6 +186,10 @@ public class ArmorEquipListener implements Listener {
                 event.setCancelled(armorSlot != null
                         && !InventoryManager.validateArmor(player, InventoryAction.PLACE_ONE, armorSlot, event.getItem())
                 );
+
+                if (!event.isCancelled()) {
+                    ItemManager.updateStats(player);
+                }
             }
         }
     }
@@ -130,7 +130,7 @@ public class BackpackListener implements Listener {
             return;
         }
 
-        backpack.onUse();
+        backpack.onClose();
         playerWrapper.setBackpack(null);
     }
 
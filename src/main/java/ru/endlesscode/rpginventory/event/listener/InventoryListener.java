@@ -67,6 +67,13 @@ public class InventoryListener implements Listener {
 
     private final static int QUICKBAR_SIZE = 9;
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(@NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            InventoryManager.prefetchInventory(event.getUniqueId());
+        }
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(@NotNull final PlayerJoinEvent event) {
         final Player player = event.getPlayer();
@@ -173,6 +180,8 @@ public class InventoryListener implements Listener {
             if (quickSlot.isCup(player.getInventory().getItem(slotId)) && quickSlot.isValidItem(event.getItem().getItemStack())) {
                 player.getInventory().setItem(slotId, event.getItem().getItemStack());
                 event.getItem().remove();
+                InventoryManager.get(player).markChanged();
+                InventoryManager.journalSlot(player, quickSlot.getSlotId(), event.getItem().getItemStack());
 
                 player.playSound(player.getLocation(), SoundCompat.ITEM_PICKUP.get(), .3f, 1.7f);
                 if (Config.getConfig().getBoolean("attack.auto-held")) {
@@ -219,6 +228,10 @@ public class InventoryListener implements Listener {
                 }
             }
         }
+
+        if (InventoryAPI.isRPGInventory(event.getInventory())) {
+            InventoryManager.get(player).markChanged();
+        }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
@@ -287,6 +300,8 @@ public class InventoryListener implements Listener {
                 return;
             }
 
+            InventoryManager.get(player).markChanged();
+
             PlayerWrapper playerWrapper = null;
             if (isRpgInventory) {
                 playerWrapper = (PlayerWrapper) inventory.getHolder();
@@ -370,6 +385,16 @@ public class InventoryListener implements Listener {
                 } else if (slot.isCup(currentItem)) {
                     event.setCurrentItem(null);
                 }
+
+                // Click is handled by the server, so the result is known only on the next tick
+                if (isRpgInventory && isInInventory && !event.isCancelled()) {
+                    new TrackedBukkitRunnable() {
+                        @Override
+                        public void run() {
+                            InventoryManager.journalSlot(player, rawSlot, inventory.getItem(rawSlot));
+                        }
+                    }.runTaskLater(RPGInventory.getInstance(), 1);
+                }
             }
         }
     }
@@ -39,10 +39,12 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
 import ru.endlesscode.rpginventory.RPGInventory;
 import ru.endlesscode.rpginventory.compat.SoundCompat;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
+import ru.endlesscode.rpginventory.inventory.PlayerWrapper;
 import ru.endlesscode.rpginventory.inventory.slot.Slot;
 import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
 import ru.endlesscode.rpginventory.item.CustomItem;
@@ -66,9 +68,9 @@ public class ItemListener implements Listener {
     public void onDamage(@NotNull EntityDamageByEntityEvent event) {
         Player damager;
 
-        // Defensive stats
+        // Defensive stats, they are applied as attributes in the attributes mode
         try {
-            if (event.getEntityType() == EntityType.PLAYER) {
+            if (event.getEntityType() == EntityType.PLAYER && !Config.statsAsAttributes) {
                 Modifier armorModifier = ItemManager.getModifier((Player) event.getEntity(), ItemStat.StatType.ARMOR);
                 double armorReduction = event.getDamage(EntityDamageEvent.DamageModifier.ARMOR);
                 double armor = (armorReduction - armorModifier.getBonus()) * armorModifier.getMultiplier();
@@ -82,18 +84,17 @@ public class ItemListener implements Listener {
         }
 
         // Attack stats
-        Modifier damageModifier;
+        ItemStat.StatType damageStat;
         ItemStack itemInHand;
         if (event.getDamager().getType() == EntityType.PLAYER) {
             damager = (Player) event.getDamager();
             itemInHand = damager.getEquipment().getItemInMainHand();
-            damageModifier = ItemManager.getModifier(damager,
-                    ItemUtils.isEmpty(itemInHand) ? ItemStat.StatType.HAND_DAMAGE : ItemStat.StatType.DAMAGE);
+            damageStat = ItemUtils.isEmpty(itemInHand) ? ItemStat.StatType.HAND_DAMAGE : ItemStat.StatType.DAMAGE;
         } else if (event.getDamager() instanceof AbstractArrow &&
                 ((AbstractArrow) event.getDamager()).getShooter() instanceof Player) {
             damager = (Player) ((AbstractArrow) event.getDamager()).getShooter();
             itemInHand = damager.getEquipment().getItemInMainHand();
-            damageModifier = ItemManager.getModifier(damager, ItemStat.StatType.BOW_DAMAGE);
+            damageStat = ItemStat.StatType.BOW_DAMAGE;
         } else {
             return;
         }
@@ -101,6 +102,7 @@ public class ItemListener implements Listener {
         if (!InventoryManager.playerIsLoaded(damager)) {
             return;
         }
+        PlayerWrapper damagerWrapper = InventoryManager.get(damager);
 
         if (!ItemManager.allowedForPlayer(damager, itemInHand, true)) {
             event.setCancelled(true);
@@ -132,11 +134,18 @@ public class ItemListener implements Listener {
         }
 
         double baseDamage = event.getDamage(EntityDamageEvent.DamageModifier.BASE);
-        double damage = (CustomItem.isCustomItem(itemInHand) ? 1 : baseDamage)
-                + damageModifier.getBonus() * damageModifier.getMultiplier();
-        double critChance = ItemManager.getModifier(damager, ItemStat.StatType.CRIT_CHANCE).getMultiplier() - 1.0;
+        double damage;
+        if (Config.statsAsAttributes && damageStat != ItemStat.StatType.BOW_DAMAGE) {
+            // Melee damage bonus is already included to the base damage via attributes
+            damage = baseDamage;
+        } else {
+            Modifier damageModifier = damagerWrapper.getModifier(damageStat);
+            damage = (CustomItem.isCustomItem(itemInHand) ? 1 : baseDamage)
+                    + damageModifier.getBonus() * damageModifier.getMultiplier();
+        }
+        double critChance = damagerWrapper.getModifier(ItemStat.StatType.CRIT_CHANCE).getMultiplier() - 1.0;
         if (Math.random() <= critChance) {
-            damage *= ItemManager.getModifier(damager, ItemStat.StatType.CRIT_DAMAGE).getMultiplier();
+            damage *= damagerWrapper.getModifier(ItemStat.StatType.CRIT_DAMAGE).getMultiplier();
             damager.getWorld().playSound(
                     event.getEntity().getLocation(),
                     SoundCompat.SUCCESSFUL_HIT.get(),
@@ -288,17 +297,38 @@ public class ItemListener implements Listener {
 
         final ItemStack newItem = player.getInventory().getItem(event.getNewSlot());
         final ItemStack oldItem = player.getInventory().getItem(event.getPreviousSlot());
+        if (!affectsStats(oldItem) && !affectsStats(newItem)) {
+            return;
+        }
 
+        // Stats used on hit should not wait for the update. Held item is changed after the event,
+        // so stats are invalidated again on the next tick in case they were computed in between
+        final PlayerWrapper playerWrapper = InventoryManager.get(player);
+        playerWrapper.invalidateStats();
         new TrackedBukkitRunnable() {
             @Override
             public void run() {
-                if (CustomItem.isCustomItem(oldItem) || CustomItem.isCustomItem(newItem)) {
-                    ItemManager.updateStats(event.getPlayer());
-                }
+                playerWrapper.invalidateStats();
+            }
+        }.runTaskLater(RPGInventory.getInstance(), 1);
+
+        // Permissions, attributes and info slots
+        new TrackedBukkitRunnable() {
+            @Override
+            public void run() {
+                ItemManager.updateStats(event.getPlayer());
             }
         }.runTaskLater(RPGInventory.getInstance(), 2);
     }
 
+    /**
+     * Level requirements of equipped items should be checked again.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void afterLevelChange(@NotNull PlayerLevelChangeEvent event) {
+        ItemManager.updateStats(event.getPlayer());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void afterPickupItem(@NotNull EntityPickupItemEvent event) {
         if (event.getEntityType() != EntityType.PLAYER) {
@@ -311,7 +341,7 @@ public class ItemListener implements Listener {
         }
 
         ItemStack item = event.getItem().getItemStack();
-        if (CustomItem.isCustomItem(item)) {
+        if (affectsStats(item)) {
             ItemManager.updateStats(player);
         }
     }
@@ -324,7 +354,7 @@ public class ItemListener implements Listener {
             return;
         }
 
-        if (CustomItem.isCustomItem(event.getItemDrop().getItemStack())) {
+        if (affectsStats(event.getItemDrop().getItemStack())) {
             ItemManager.updateStats(player);
         }
     }
@@ -337,8 +367,15 @@ public class ItemListener implements Listener {
             return;
         }
 
-        if (CustomItem.isCustomItem(event.getBrokenItem())) {
+        if (affectsStats(event.getBrokenItem())) {
             ItemManager.updateStats(player);
         }
     }
+
+    /**
+     * In the attributes mode damage bonus depends on whether the player holds any item, not only custom.
+     */
+    private static boolean affectsStats(@Nullable ItemStack item) {
+        return Config.statsAsAttributes || CustomItem.isCustomItem(item);
+    }
 }
@@ -108,7 +108,7 @@ public class PetListener implements Listener {
         Inventory inventory = InventoryManager.get(player).getInventory();
         ItemStack petItem = event.getItem();
 
-        if (player.getGameMode() == GameMode.CREATIVE && PetManager.isPetItem(petItem)) {
+        if (player.getGameMode() == GameMode.CREATIVE && !PetType.isPetItem(petItem) && PetManager.isPetItem(petItem)) {
             petItem = PetManager.toPetItem(petItem);
             player.getEquipment().setItemInMainHand(petItem);
         }
@@ -119,6 +119,7 @@ public class PetListener implements Listener {
             if (petSlot != null && petSlot.isCup(inventory.getItem(PetManager.getPetSlotId()))
                     && ItemManager.allowedForPlayer(player, petItem, false)) {
                 inventory.setItem(PetManager.getPetSlotId(), event.getItem());
+                InventoryManager.get(player).markChanged();
                 PetManager.respawnPet(player, petItem);
                 player.getEquipment().setItemInMainHand(null);
             }
@@ -235,6 +236,7 @@ public class PetListener implements Listener {
 
         final PlayerWrapper playerWrapper = InventoryManager.get(player);
         if (petEntity == playerWrapper.getPet()) {
+            playerWrapper.markChanged();
             Inventory inventory = playerWrapper.getInventory();
             ItemStack petItem = inventory.getItem(PetManager.getPetSlotId());
             PetType petType = PetManager.getPetFromItem(petItem);
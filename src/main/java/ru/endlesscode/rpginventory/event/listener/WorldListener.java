@@ -26,6 +26,7 @@ import org.bukkit.event.world.WorldSaveEvent;
 import org.jetbrains.annotations.NotNull;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
+import ru.endlesscode.rpginventory.misc.serialization.InventoryJournal;
 import ru.endlesscode.rpginventory.utils.ProfileUtils;
 
 /**
@@ -43,7 +44,8 @@ public class WorldListener implements Listener {
         BackpackManager.saveBackpacks();
 
         for (Player player : Bukkit.getServer().getOnlinePlayers()) {
-            InventoryManager.saveUUIDInventory(ProfileUtils.tryToGetProfileUUID(player));
+            InventoryManager.saveChangedUUIDInventory(ProfileUtils.tryToGetProfileUUID(player));
         }
+        InventoryJournal.compactLater();
     }
 }
@@ -18,16 +18,34 @@
 
 package ru.endlesscode.rpginventory.event.updater;
 
+import org.bukkit.Bukkit;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeInstance;
 import org.bukkit.attribute.AttributeModifier;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
+import ru.endlesscode.rpginventory.compat.MaterialCompat;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.inventory.PlayerWrapper;
-import ru.endlesscode.rpginventory.item.ItemManager;
+import ru.endlesscode.rpginventory.item.CustomItem;
 import ru.endlesscode.rpginventory.item.ItemStat;
+import ru.endlesscode.rpginventory.item.Modifier;
+import ru.endlesscode.rpginventory.item.StatSheet;
+import ru.endlesscode.rpginventory.misc.config.Config;
 import ru.endlesscode.rpginventory.pet.Attributes;
+import ru.endlesscode.rpginventory.utils.ItemUtils;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Created by OsipXD on 21.09.2015
@@ -35,46 +53,164 @@ import ru.endlesscode.rpginventory.pet.Attributes;
  * All rights reserved 2014 - 2016 © «EndlessCode Group»
  */
 public class StatsUpdater extends TrackedBukkitRunnable {
-    private final Player player;
+    /**
+     * Players waiting for the update, in order of the request. Accessed only from the main thread.
+     */
+    private static final Set<UUID> DIRTY = new LinkedHashSet<>();
+
+    @Nullable
+    private static StatsUpdater instance;
+
+    private StatsUpdater() {
+    }
+
+    /**
+     * Starts the updater. Stats of every player are updated at most once per tick.
+     */
+    public static void start(@NotNull Plugin plugin) {
+        if (instance == null) {
+            instance = new StatsUpdater();
+            instance.runTaskTimer(plugin, 1, 1);
+        }
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.cancel();
+            instance = null;
+        }
+        DIRTY.clear();
+    }
 
-    public StatsUpdater(Player player) {
-        this.player = player;
+    /**
+     * Requests update of the stats, permissions and info slots of the player.
+     * Repeated requests are merged until the update is done.
+     */
+    public static void requestUpdate(@NotNull Player player) {
+        DIRTY.add(player.getUniqueId());
     }
 
     @Override
     public void run() {
-        if (!InventoryManager.playerIsLoaded(this.player)) {
-            return;
+        // Players over the budget are updated on the next ticks
+        int budget = Config.statsUpdatesPerTick;
+        while (budget > 0 && !DIRTY.isEmpty()) {
+            // Update can request another update, so iterator should not be kept
+            Iterator<UUID> iterator = DIRTY.iterator();
+            Player player = Bukkit.getPlayer(iterator.next());
+            iterator.remove();
+
+            if (player != null && InventoryManager.playerIsLoaded(player)) {
+                update(player);
+                budget--;
+            }
         }
+    }
 
-        PlayerWrapper playerWrapper = InventoryManager.get(this.player);
+    private static void update(@NotNull Player player) {
+        PlayerWrapper playerWrapper = InventoryManager.get(player);
+        // Equipment may be changed after the stats update was scheduled
+        playerWrapper.invalidateStats();
         playerWrapper.updatePermissions();
 
+        StatSheet stats = playerWrapper.getStats();
+
         // Update speed
-        AttributeInstance speedAttribute = this.player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-        assert speedAttribute != null;
-        AttributeModifier rpgInvModifier = null;
-        for (AttributeModifier modifier : speedAttribute.getModifiers()) {
-            if (modifier.getUniqueId().compareTo(Attributes.SPEED_MODIFIER_ID) == 0) {
-                rpgInvModifier = modifier;
-            }
+        setModifier(player, Attribute.GENERIC_MOVEMENT_SPEED, Attributes.SPEED_MODIFIER_ID, Attributes.SPEED_MODIFIER,
+                stats.getModifier(ItemStat.StatType.SPEED).getMultiplier() - 1, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+
+        // Update armor and damage, random values can't be applied to attributes so mean values are used
+        Modifier armor = stats.getModifier(ItemStat.StatType.ARMOR);
+        ItemStack itemInHand = player.getEquipment().getItemInMainHand();
+        Modifier damage = stats.getModifier(ItemUtils.isEmpty(itemInHand)
+                ? ItemStat.StatType.HAND_DAMAGE
+                : ItemStat.StatType.DAMAGE);
+        boolean useAttributes = Config.statsAsAttributes;
+        setModifier(player, Attribute.GENERIC_ARMOR, Attributes.ARMOR_MODIFIER_ID, Attributes.ARMOR_MODIFIER,
+                useAttributes ? armor.getMeanBonus() : 0, AttributeModifier.Operation.ADD_NUMBER);
+        setModifier(player, Attribute.GENERIC_ARMOR, Attributes.ARMOR_MULTIPLIER_ID, Attributes.ARMOR_MODIFIER,
+                useAttributes ? armor.getMeanMultiplier() - 1 : 0, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+        setModifier(player, Attribute.GENERIC_ATTACK_DAMAGE, Attributes.DAMAGE_MODIFIER_ID, Attributes.DAMAGE_MODIFIER,
+                useAttributes ? getDamageAmount(damage, itemInHand) : 0,
+                AttributeModifier.Operation.ADD_NUMBER);
+
+        // Update info slots
+        if (playerWrapper.isOpened()) {
+            InventoryManager.syncInfoSlots(playerWrapper);
         }
+    }
 
-        if (rpgInvModifier != null) {
-            speedAttribute.removeModifier(rpgInvModifier);
+    /**
+     * Damage of custom items doesn't depend on the damage of their material, like in calculation on every hit.
+     * So damage added by the held custom item itself is subtracted.
+     */
+    private static double getDamageAmount(@NotNull Modifier damage, @Nullable ItemStack itemInHand) {
+        double amount = damage.getMeanBonus() * damage.getMeanMultiplier();
+        if (CustomItem.isCustomItem(itemInHand)) {
+            amount -= getAttackDamage(itemInHand);
         }
 
-        rpgInvModifier = new AttributeModifier(
-                Attributes.SPEED_MODIFIER_ID, Attributes.SPEED_MODIFIER,
-                ItemManager.getModifier(this.player, ItemStat.StatType.SPEED).getMultiplier() - 1,
-                AttributeModifier.Operation.MULTIPLY_SCALAR_1
-        );
+        return amount;
+    }
 
-        speedAttribute.addModifier(rpgInvModifier);
+    /**
+     * Returns attack damage added by the item in main hand. Modifiers of the item meta replace
+     * default modifiers of the material, like in vanilla. Only added numbers are counted.
+     */
+    private static double getAttackDamage(@NotNull ItemStack item) {
+        ItemMeta meta = item.getItemMeta();
+        Attribute attribute = Attribute.GENERIC_ATTACK_DAMAGE;
+        Collection<AttributeModifier> modifiers = meta != null && meta.hasAttributeModifiers()
+                ? meta.getAttributeModifiers(attribute)
+                : MaterialCompat.getDefaultAttributeModifiers(item.getType(), EquipmentSlot.HAND, attribute);
+        if (modifiers == null) {
+            return 0;
+        }
 
-        // Update info slots
-        if (playerWrapper.isOpened()) {
-            InventoryManager.syncInfoSlots(playerWrapper);
+        double damage = 0;
+        for (AttributeModifier modifier : modifiers) {
+            EquipmentSlot slot = modifier.getSlot();
+            if (modifier.getOperation() == AttributeModifier.Operation.ADD_NUMBER
+                    && (slot == null || slot == EquipmentSlot.HAND)) {
+                damage += modifier.getAmount();
+            }
+        }
+
+        return damage;
+    }
+
+    /**
+     * Removes all attribute modifiers added by the plugin.
+     */
+    public static void clearModifiers(@NotNull Player player) {
+        removeModifier(player, Attribute.GENERIC_MOVEMENT_SPEED, Attributes.SPEED_MODIFIER_ID);
+        removeModifier(player, Attribute.GENERIC_ARMOR, Attributes.ARMOR_MODIFIER_ID);
+        removeModifier(player, Attribute.GENERIC_ARMOR, Attributes.ARMOR_MULTIPLIER_ID);
+        removeModifier(player, Attribute.GENERIC_ATTACK_DAMAGE, Attributes.DAMAGE_MODIFIER_ID);
+    }
+
+    private static void setModifier(@NotNull Player player, @NotNull Attribute attribute, @NotNull UUID id,
+                                    @NotNull String name, double amount, @NotNull AttributeModifier.Operation operation) {
+        AttributeInstance attributeInstance = removeModifier(player, attribute, id);
+        if (attributeInstance != null && amount != 0) {
+            attributeInstance.addModifier(new AttributeModifier(id, name, amount, operation));
+        }
+    }
+
+    @Nullable
+    private static AttributeInstance removeModifier(@NotNull Player player, @NotNull Attribute attribute, @NotNull UUID id) {
+        AttributeInstance attributeInstance = player.getAttribute(attribute);
+        if (attributeInstance == null) {
+            return null;
         }
+
+        for (AttributeModifier modifier : attributeInstance.getModifiers()) {
+            if (modifier.getUniqueId().equals(id)) {
+                attributeInstance.removeModifier(modifier);
+                break;
+            }
+        }
+
+        return attributeInstance;
     }
 }
@@ -24,6 +24,7 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -53,8 +54,22 @@ public class InventoryLocker {
 
     private static ItemStack LOCKED_SLOT = null;
     private static ItemStack BUYABLE_SLOT = null;
-
-    private static final String TAG = "locked";
+    private static ItemStack[] BUYABLE_SLOTS = new ItemStack[0];
+
+    /**
+     * Number of lines in the storage of the player, excluding hotbar.
+     */
+    private static final int LINES = 3;
+
+    private static final String LOCKED_MARKER = "#locked";
+    /**
+     * Marker of buyable slots, followed by the line number.
+     */
+    private static final String BUYABLE_MARKER = "#buyable:";
+    /**
+     * Tag of locked slots created by previous versions.
+     */
+    private static final String LEGACY_TAG = "locked";
 
     private InventoryLocker() {
     }
@@ -66,11 +81,17 @@ public class InventoryLocker {
         }
 
         try {
-            InventoryLocker.LOCKED_SLOT = initSlotItem("locked");
-            InventoryLocker.BUYABLE_SLOT = initSlotItem("buyable");
+            InventoryLocker.LOCKED_SLOT = initSlotItem("locked", LOCKED_MARKER);
+            InventoryLocker.BUYABLE_SLOT = initSlotItem("buyable", null);
             if (ItemUtils.isEmpty(InventoryLocker.LOCKED_SLOT) || ItemUtils.isEmpty(InventoryLocker.BUYABLE_SLOT)) {
                 return false;
             }
+
+            ItemStack[] buyableSlots = new ItemStack[LINES];
+            for (int line = 1; line <= LINES; line++) {
+                buyableSlots[line - 1] = createBuyableSlot(line);
+            }
+            InventoryLocker.BUYABLE_SLOTS = buyableSlots;
         } catch (Exception e) {
             //instance.getReporter().report("Error on InventoryLocker initialization", e);
             return false;
@@ -80,7 +101,7 @@ public class InventoryLocker {
         return true;
     }
 
-    private static ItemStack initSlotItem(String slotId) {
+    private static ItemStack initSlotItem(String slotId, @Nullable String marker) {
         Texture texture = Texture.parseTexture(Config.getConfig().getString("slots." + slotId));
         ItemStack slotItem = texture.getItemStack();
         if (ItemUtils.isEmpty(slotItem)) {
@@ -95,7 +116,7 @@ public class InventoryLocker {
             slotItem.setItemMeta(meta);
         }
 
-        return addTag(slotItem);
+        return marker == null ? slotItem : ItemUtils.setTag(slotItem, ItemUtils.PLACEHOLDER_TAG, marker);
     }
 
     private static boolean isEnabled() {
@@ -132,8 +153,21 @@ public class InventoryLocker {
         return (slot - 9) / 9 + 1;
     }
 
+    /**
+     * Returns buyable slot item for the line. Items are prepared on load, so returned item is shared
+     * and must not be modified.
+     */
     @NotNull
     public static ItemStack getBuyableSlotForLine(int line) {
+        if (line >= 1 && line <= InventoryLocker.BUYABLE_SLOTS.length) {
+            return InventoryLocker.BUYABLE_SLOTS[line - 1];
+        }
+
+        return createBuyableSlot(line);
+    }
+
+    @NotNull
+    private static ItemStack createBuyableSlot(int line) {
         ItemStack slot = InventoryLocker.BUYABLE_SLOT.clone();
         ItemMeta meta = slot.getItemMeta();
         if (meta != null) {
@@ -154,20 +188,25 @@ public class InventoryLocker {
             slot.setItemMeta(meta);
         }
 
-        return addTag(slot);
-    }
-
-    @NotNull
-    private static ItemStack addTag(ItemStack item) {
-        return ItemUtils.setTag(item, TAG, "0");
+        return ItemUtils.setTag(slot, ItemUtils.PLACEHOLDER_TAG, BUYABLE_MARKER + line);
     }
 
     public static boolean isLockedSlot(@Nullable ItemStack item) {
-        return InventoryLocker.isEnabled() && ItemUtils.isNotEmpty(item) && ItemUtils.hasTag(item, TAG);
+        if (!InventoryLocker.isEnabled() || ItemUtils.isEmpty(item)) {
+            return false;
+        }
+
+        String marker = ItemUtils.getTag(item, ItemUtils.PLACEHOLDER_TAG);
+        if (marker.isEmpty()) {
+            return ItemUtils.hasTag(item, LEGACY_TAG);
+        }
+
+        return marker.equals(LOCKED_MARKER) || marker.startsWith(BUYABLE_MARKER);
     }
 
-    public static boolean isBuyableSlot(ItemStack currentItem, int line) {
-        return InventoryLocker.getBuyableSlotForLine(line).equals(currentItem);
+    public static boolean isBuyableSlot(@Nullable ItemStack currentItem, int line) {
+        return ItemUtils.isNotEmpty(currentItem)
+                && ItemUtils.getTag(currentItem, ItemUtils.PLACEHOLDER_TAG).equals(BUYABLE_MARKER + line);
     }
 
     public static void lockSlots(@NotNull Player player) {
@@ -179,32 +218,39 @@ public class InventoryLocker {
             return;
         }
 
+        // All changes are applied to the copy of contents and written at once
+        PlayerInventory inventory = player.getInventory();
+        ItemStack[] contents = inventory.getStorageContents();
         if (InventoryLocker.isEnabled()) {
             int maxSlot = getSlots(player) + 8;
             for (int i = 35; i > maxSlot; i--) {
-                player.getInventory().setItem(i, InventoryLocker.LOCKED_SLOT);
+                contents[i] = InventoryLocker.LOCKED_SLOT;
             }
 
             if (maxSlot < 35) {
-                player.getInventory().setItem(maxSlot + 1, getBuyableSlotForLine(getLine(maxSlot + 1)));
+                contents[maxSlot + 1] = getBuyableSlotForLine(getLine(maxSlot + 1));
             }
         }
 
-        InventoryManager.lockQuickSlots(player);
+        InventoryManager.lockQuickSlots(contents);
+        inventory.setStorageContents(contents);
+        InventoryManager.selectFreeQuickSlot(player);
         InventoryManager.lockEmptySlots(player);
     }
 
     public static void unlockSlots(@NotNull Player player, UUID profileUUID) {
+        PlayerInventory inventory = player.getInventory();
+        ItemStack[] contents = inventory.getStorageContents();
         if (InventoryLocker.isEnabled()) {
             for (int i = 8 + getSlots(player); i < 36; i++) {
-                ItemStack itemStack = player.getInventory().getItem(i);
-                if (InventoryLocker.isLockedSlot(itemStack)) {
-                    player.getInventory().setItem(i, null);
+                if (InventoryLocker.isLockedSlot(contents[i])) {
+                    contents[i] = null;
                 }
             }
         }
 
-        InventoryManager.unlockQuickSlots(player);
+        InventoryManager.unlockQuickSlots(contents);
+        inventory.setStorageContents(contents);
         InventoryManager.unlockEmptySlots(profileUUID);
     }
 
@@ -46,7 +46,11 @@ import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
 import ru.endlesscode.rpginventory.item.ItemManager;
 import ru.endlesscode.rpginventory.item.Texture;
 import ru.endlesscode.rpginventory.misc.config.Config;
+import ru.endlesscode.rpginventory.misc.serialization.InventoryJournal;
+import ru.endlesscode.rpginventory.misc.serialization.InventorySnapshot;
+import ru.endlesscode.rpginventory.misc.serialization.SaveQueue;
 import ru.endlesscode.rpginventory.misc.serialization.Serialization;
+import ru.endlesscode.rpginventory.misc.serialization.StorageBackend;
 import ru.endlesscode.rpginventory.pet.PetManager;
 import ru.endlesscode.rpginventory.pet.PetType;
 import ru.endlesscode.rpginventory.resourcepack.ResourcePackModule;
@@ -60,18 +64,20 @@ import ru.endlesscode.rpginventory.utils.SafeEnums;
 import ru.endlesscode.rpginventory.utils.StringUtils;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public class InventoryManager {
     static final String TITLE = RPGInventory.getLanguage().getMessage("title");
     private static final Map<UUID, PlayerWrapper> INVENTORIES = new HashMap<>();
 
+    private static final String FILL_MARKER = "#fill";
+
     private static ItemStack FILL_SLOT = null;
     //private static Reporter reporter;
 
@@ -89,6 +95,7 @@ public class InventoryManager {
                 meta.setDisplayName(" ");
                 InventoryManager.FILL_SLOT.setItemMeta(meta);
             }
+            InventoryManager.FILL_SLOT = ItemUtils.setTag(InventoryManager.FILL_SLOT, ItemUtils.PLACEHOLDER_TAG, FILL_MARKER);
         } catch (Exception e) {
             //reporter.report("Error on InventoryManager initialization", e);
             return false;
@@ -416,13 +423,48 @@ public class InventoryManager {
         if (slotType == InventoryType.SlotType.QUICKBAR) {
             if (slot < 9) { // Exclude shield
                 player.getInventory().setItem(slot, currentItem);
+
+                Slot quickSlot = SlotManager.instance().getSlot(slot, InventoryType.SlotType.QUICKBAR);
+                if (quickSlot != null) {
+                    InventoryManager.journalSlot(player, quickSlot.getSlotId(), currentItem);
+                }
             }
         } else {
             inventory.setItem(slot, currentItem);
+            if (InventoryAPI.isRPGInventory(inventory)) {
+                InventoryManager.journalSlot(player, slot, currentItem);
+            }
         }
 
         player.setItemOnCursor(cursorItem);
         player.updateInventory();
+        InventoryManager.get(player).markChanged();
+    }
+
+    /**
+     * Writes the item of RPG inventory slot to the journal, so the change will survive a crash before the next save.
+     */
+    public static void journalSlot(@NotNull Player player, int slotId, @Nullable ItemStack item) {
+        InventoryJournal.append(ProfileUtils.tryToGetProfileUUID(player), slotId, item);
+    }
+
+    private static void applyJournal(@NotNull UUID uuid, @NotNull PlayerWrapper playerWrapper) {
+        Map<Integer, ItemStack> recovered = InventoryJournal.takeRecovered(uuid);
+        if (recovered.isEmpty()) {
+            return;
+        }
+
+        Inventory inventory = playerWrapper.getInventory();
+        for (Map.Entry<Integer, ItemStack> entry : recovered.entrySet()) {
+            Slot slot = SlotManager.instance().getSlot(entry.getKey(), InventoryType.SlotType.CONTAINER);
+            if (slot == null || slot.getSlotType() == Slot.SlotType.ARMOR) {
+                continue;
+            }
+
+            ItemStack item = entry.getValue();
+            inventory.setItem(entry.getKey(), ItemUtils.isEmpty(item) ? slot.getCup() : item);
+        }
+        playerWrapper.markChanged();
     }
 
     static void lockEmptySlots(Player player) {
@@ -430,25 +472,33 @@ public class InventoryManager {
     }
 
     public static void lockEmptySlots(Inventory inventory) {
-        for (int i = 0; i < inventory.getSize(); i++) {
-            Slot slot = SlotManager.instance().getSlot(i, InventoryType.SlotType.CONTAINER);
+        SlotManager slotManager = SlotManager.instance();
+        ItemStack[] contents = inventory.getContents();
+        for (int i = 0; i < contents.length; i++) {
+            Slot slot = slotManager.getSlot(i, InventoryType.SlotType.CONTAINER);
             if (slot == null) {
-                inventory.setItem(i, FILL_SLOT);
-            } else if (ItemUtils.isEmpty(inventory.getItem(i))) {
-                inventory.setItem(i, slot.getCup());
+                contents[i] = FILL_SLOT;
+            } else if (ItemUtils.isEmpty(contents[i])) {
+                contents[i] = slotManager.getCupTemplate(i);
             }
         }
+
+        inventory.setContents(contents);
     }
 
     static void unlockEmptySlots(UUID uuid) {
         Inventory inventory = INVENTORIES.get(uuid).getInventory();
 
-        for (int i = 0; i < inventory.getSize(); i++) {
-            Slot slot = SlotManager.instance().getSlot(i, InventoryType.SlotType.CONTAINER);
-            if (slot == null || slot.isCup(inventory.getItem(i))) {
-                inventory.setItem(i, null);
+        SlotManager slotManager = SlotManager.instance();
+        ItemStack[] contents = inventory.getContents();
+        for (int i = 0; i < contents.length; i++) {
+            Slot slot = slotManager.getSlot(i, InventoryType.SlotType.CONTAINER);
+            if (slot == null || slot.isCup(contents[i])) {
+                contents[i] = null;
             }
         }
+
+        inventory.setContents(contents);
     }
 
     public static boolean isQuickSlot(int slot) {
@@ -466,34 +516,49 @@ public class InventoryManager {
         return null;
     }
 
-    static void lockQuickSlots(@NotNull Player player) {
+    /**
+     * Places cups of quick slots to the empty cells of the player's storage contents.
+     */
+    static void lockQuickSlots(@NotNull ItemStack[] storageContents) {
         for (Slot quickSlot : SlotManager.instance().getQuickSlots()) {
             int slotId = quickSlot.getQuickSlot();
-
-            if (ItemUtils.isEmpty(player.getInventory().getItem(slotId))) {
-                player.getInventory().setItem(slotId, quickSlot.getCup());
+            if (ItemUtils.isEmpty(storageContents[slotId])) {
+                storageContents[slotId] = quickSlot.getCup();
             }
+        }
+    }
 
-            if (player.getInventory().getHeldItemSlot() == slotId) {
-                if (quickSlot.isCup(player.getInventory().getItem(slotId))) {
-                    InventoryUtils.heldFreeSlot(player, slotId, InventoryUtils.SearchType.NEXT);
-                }
-            }
+    /**
+     * Moves selection of the player to the next slot if the cup of quick slot is selected.
+     */
+    static void selectFreeQuickSlot(@NotNull Player player) {
+        int heldSlot = player.getInventory().getHeldItemSlot();
+        Slot quickSlot = SlotManager.instance().getSlot(heldSlot, InventoryType.SlotType.QUICKBAR);
+        if (quickSlot != null && quickSlot.isQuick() && quickSlot.isCup(player.getInventory().getItem(heldSlot))) {
+            InventoryUtils.heldFreeSlot(player, heldSlot, InventoryUtils.SearchType.NEXT);
         }
     }
 
-    static void unlockQuickSlots(@NotNull Player player) {
+    /**
+     * Removes cups of quick slots from the player's storage contents.
+     */
+    static void unlockQuickSlots(@NotNull ItemStack[] storageContents) {
         for (Slot quickSlot : SlotManager.instance().getQuickSlots()) {
             int slotId = quickSlot.getQuickSlot();
-            if (quickSlot.isCup(player.getInventory().getItem(slotId))) {
-                player.getInventory().setItem(slotId, null);
+            if (quickSlot.isCup(storageContents[slotId])) {
+                storageContents[slotId] = null;
             }
         }
     }
 
     public static boolean isNewPlayer(@NotNull Player player) {
-        Path dataFolder = RPGInventory.getInstance().getDataFolder().toPath();
-        return Files.notExists(dataFolder.resolve("inventories/" + ProfileUtils.tryToGetProfileUUID(player) + ".inv"));
+        UUID uuid = ProfileUtils.tryToGetProfileUUID(player);
+        try {
+            return !Serialization.getStorage().exists(StorageBackend.Kind.INVENTORY, uuid);
+        } catch (IOException e) {
+            Log.w(e, "Error on checking of {0}''s inventory", player.getName());
+            return false;
+        }
     }
 
     public static void loadPlayerInventory(Player player) {
@@ -502,44 +567,37 @@ public class InventoryManager {
             return;
         }
 
-        try {
-            Path dataFolder = RPGInventory.getInstance().getDataPath();
-            Path folder = dataFolder.resolve("inventories");
-            Files.createDirectories(folder);
-
-            // Load inventory from file
-            Path file = folder.resolve(ProfileUtils.tryToGetProfileUUID(player) + ".inv");
-
-            PlayerWrapper playerWrapper = null;
-            if (Files.exists(file)) {
-                playerWrapper = Serialization.loadPlayerOrNull(player, file);
-                if (playerWrapper == null) {
-                    Log.s("Error on loading {0}''s inventory.", player.getName());
-                    Log.s("Will be created new inventory. Old file was renamed.");
-                }
-            }
+        UUID uuid = ProfileUtils.tryToGetProfileUUID(player);
 
-            if (playerWrapper == null) {
-                playerWrapper = new PlayerWrapper(player);
-                playerWrapper.setBuyedSlots(0);
-            }
+        // Use inventory prefetched on login, or load it from the storage
+        PlayerWrapper playerWrapper = null;
+        InventorySnapshot prefetchedSnapshot = InventoryPrefetcher.take(uuid);
+        if (prefetchedSnapshot != null) {
+            playerWrapper = prefetchedSnapshot.restore(player);
+        } else {
+            SaveQueue.await(StorageBackend.Kind.INVENTORY, uuid);
+            playerWrapper = Serialization.loadPlayerOrNull(player, uuid);
+        }
 
-            PlayerInventoryLoadEvent.Pre event = new PlayerInventoryLoadEvent.Pre(player);
-            RPGInventory.getInstance().getServer().getPluginManager().callEvent(event);
+        if (playerWrapper == null) {
+            playerWrapper = new PlayerWrapper(player);
+            playerWrapper.setBuyedSlots(0);
+        }
+        InventoryManager.applyJournal(uuid, playerWrapper);
 
-            if (event.isCancelled()) {
-                return;
-            }
+        PlayerInventoryLoadEvent.Pre event = new PlayerInventoryLoadEvent.Pre(player);
+        RPGInventory.getInstance().getServer().getPluginManager().callEvent(event);
 
-            InventoryManager.INVENTORIES.put(ProfileUtils.tryToGetProfileUUID(player), playerWrapper);
+        if (event.isCancelled()) {
+            return;
+        }
 
-            InventoryLocker.lockSlots(player);
-            PetManager.initPlayer(player);
+        InventoryManager.INVENTORIES.put(uuid, playerWrapper);
 
-            RPGInventory.getInstance().getServer().getPluginManager().callEvent(new PlayerInventoryLoadEvent.Post(player));
-        } catch (IOException e) {
-            //reporter.report("Error on inventory load", e);
-        }
+        InventoryLocker.lockSlots(player);
+        PetManager.initPlayer(player);
+
+        RPGInventory.getInstance().getServer().getPluginManager().callEvent(new PlayerInventoryLoadEvent.Post(player));
     }
 
     // This version of the method first unloads the player's base inventory, then unloads the profile inventory if it exists.
@@ -586,24 +644,33 @@ public class InventoryManager {
 //        RPGInventory.getInstance().getServer().getPluginManager().callEvent(new PlayerInventoryUnloadEvent.Post(player));
 //    }
 
+    /**
+     * Saves inventory only if it has been changed since the last save.
+     */
+    public static void saveChangedUUIDInventory(@NotNull UUID uuid) {
+        PlayerWrapper playerWrapper = InventoryManager.INVENTORIES.get(uuid);
+        if (playerWrapper != null && playerWrapper.isChanged()) {
+            saveUUIDInventory(uuid);
+        }
+    }
+
     public static void saveUUIDInventory(@NotNull UUID uuid){
         if (!InventoryManager.uuidIsLoaded(uuid)) {
             return;
         }
 
+        // Only snapshot is created on the main thread, it will be written to the disk in background
         PlayerWrapper playerWrapper = InventoryManager.INVENTORIES.get(uuid);
-        try {
-            Path dataFolder = RPGInventory.getInstance().getDataPath();
-            Path folder = dataFolder.resolve("inventories");
-            Files.createDirectories(folder);
-
-            Path file = folder.resolve(uuid + ".inv");
-            Files.deleteIfExists(file);
+        InventoryPrefetcher.invalidate(uuid);
+        SaveQueue.submit(StorageBackend.Kind.INVENTORY, uuid, playerWrapper.createSnapshot());
+        InventoryJournal.checkpoint(uuid);
+    }
 
-            Serialization.save(playerWrapper.createSnapshot(), file);
-        } catch (IOException | NullPointerException e) {
-            Log.w(e, "Error on inventory save");
-        }
+    /**
+     * Starts loading of the inventory before the player joins. Should be called asynchronously.
+     */
+    public static void prefetchInventory(@NotNull UUID uuid) {
+        InventoryPrefetcher.prefetch(uuid);
     }
 
 //    public static void savePlayerInventory(@NotNull Player player) {
@@ -638,27 +705,17 @@ public class InventoryManager {
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public static boolean isQuickEmptySlot(@Nullable ItemStack item) {
-        for (Slot quickSlot : SlotManager.instance().getQuickSlots()) {
-            if (quickSlot.isCup(item)) {
-                return true;
-            }
-        }
-
-        return false;
+        Slot slot = SlotManager.instance().getSlotByCup(item);
+        return slot != null && slot.isQuick();
     }
 
     public static boolean isFilledSlot(@Nullable ItemStack item) {
-        return InventoryManager.FILL_SLOT.equals(item);
+        return item != null && item.getType() == InventoryManager.FILL_SLOT.getType()
+                && FILL_MARKER.equals(ItemUtils.getTag(item, ItemUtils.PLACEHOLDER_TAG));
     }
 
     public static boolean isEmptySlot(@Nullable ItemStack item) {
-        for (Slot slot : SlotManager.instance().getSlots()) {
-            if (slot.isCup(item)) {
-                return true;
-            }
-        }
-
-        return false;
+        return SlotManager.instance().getSlotByCup(item) != null;
     }
 
     // Same functionality as below method, but allows caller to pass in UUID to check.
@@ -667,6 +724,11 @@ public class InventoryManager {
         return uuid != null && InventoryManager.INVENTORIES.containsKey(uuid);
     }
 
+    @NotNull
+    public static Set<UUID> getLoadedUUIDs() {
+        return new HashSet<>(InventoryManager.INVENTORIES.keySet());
+    }
+
     @Contract("null -> false")
     public static boolean playerIsLoaded(@Nullable AnimalTamer player) {
         return player != null && InventoryManager.INVENTORIES.containsKey(ProfileUtils.tryToGetProfileUUID((Player) player));
@@ -702,6 +764,7 @@ public class InventoryManager {
         }
 
         playerWrapper.setBuyedSlots(slot.getName());
+        playerWrapper.markChanged();
         PlayerUtils.sendMessage(player, RPGInventory.getLanguage().getMessage("message.buyed"));
 
         return true;
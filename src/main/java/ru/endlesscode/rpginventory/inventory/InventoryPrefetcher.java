@@ -0,0 +1,110 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.misc.serialization.InventorySnapshot;
+import ru.endlesscode.rpginventory.misc.serialization.SaveQueue;
+import ru.endlesscode.rpginventory.misc.serialization.Serialization;
+import ru.endlesscode.rpginventory.misc.serialization.StorageBackend;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and decodes inventories of joining players off the main thread.
+ * Decoded snapshots live in the cache for a short time, until player's inventory will be loaded.
+ */
+class InventoryPrefetcher {
+
+    private static final long TTL = TimeUnit.MINUTES.toNanos(2);
+
+    private static final Map<UUID, Prefetched> PREFETCHED = new ConcurrentHashMap<>();
+    private static final Map<UUID, Long> INVALIDATED = new ConcurrentHashMap<>();
+
+    private InventoryPrefetcher() {
+    }
+
+    /**
+     * Loads snapshot of the inventory to the cache. Should be called asynchronously.
+     */
+    static void prefetch(@NotNull UUID uuid) {
+        long startedAt = System.nanoTime();
+        purgeExpired(startedAt);
+
+        SaveQueue.await(StorageBackend.Kind.INVENTORY, uuid);
+        try {
+            InventorySnapshot snapshot = Serialization.loadInventorySnapshot(uuid);
+            if (snapshot != null) {
+                PREFETCHED.put(uuid, new Prefetched(snapshot, startedAt));
+            }
+        } catch (Exception e) {
+            // Inventory will be loaded and the error will be handled on the main thread
+            Log.d(e);
+        }
+    }
+
+    /**
+     * Takes prefetched snapshot from the cache.
+     *
+     * @return Snapshot of the inventory, or {@code null} if it was not prefetched or it is outdated
+     */
+    @Nullable
+    static InventorySnapshot take(@NotNull UUID uuid) {
+        Prefetched prefetched = PREFETCHED.remove(uuid);
+        Long invalidatedAt = INVALIDATED.get(uuid);
+        if (prefetched == null || invalidatedAt != null && invalidatedAt - prefetched.startedAt >= 0
+                || prefetched.isExpired(System.nanoTime())) {
+            return null;
+        }
+
+        return prefetched.snapshot;
+    }
+
+    /**
+     * Drops the prefetched snapshot because the inventory has been changed.
+     */
+    static void invalidate(@NotNull UUID uuid) {
+        INVALIDATED.put(uuid, System.nanoTime());
+        PREFETCHED.remove(uuid);
+    }
+
+    private static void purgeExpired(long now) {
+        PREFETCHED.values().removeIf(prefetched -> prefetched.isExpired(now));
+        INVALIDATED.values().removeIf(invalidatedAt -> now - invalidatedAt > TTL);
+    }
+
+    private static class Prefetched {
+        private final InventorySnapshot snapshot;
+        private final long startedAt;
+
+        private Prefetched(@NotNull InventorySnapshot snapshot, long startedAt) {
+            this.snapshot = snapshot;
+            this.startedAt = startedAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - this.startedAt > TTL;
+        }
+    }
+}
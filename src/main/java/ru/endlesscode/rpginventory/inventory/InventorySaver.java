@@ -53,6 +53,7 @@ public class InventorySaver {
 
     public static void save(@NotNull Player player, @NotNull List<ItemStack> drops, boolean saveItems, boolean saveArmor, boolean saveRpgInv) {
         PlayerWrapper playerWrapper = InventoryManager.get(player);
+        playerWrapper.markChanged();
         Inventory inventory = playerWrapper.getInventory();
         InventoryManager.syncArmor(playerWrapper);
         InventoryManager.syncQuickSlots(playerWrapper);
@@ -60,7 +61,7 @@ public class InventorySaver {
 
         // Save armor
         List<ItemStack> armorList = new ArrayList<>(4);
-        List<Slot> armorSlots = SlotManager.instance().getArmorSlots();
+        List<Slot> armorSlots = new ArrayList<>(SlotManager.instance().getArmorSlots());
 
         for (ItemStack armor : player.getInventory().getArmorContents()) {
             CustomItem armorItem = ItemManager.getCustomItem(armor);
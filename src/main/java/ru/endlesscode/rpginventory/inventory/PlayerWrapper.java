@@ -22,15 +22,13 @@ import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.attribute.Attribute;
-import org.bukkit.attribute.AttributeInstance;
-import org.bukkit.attribute.AttributeModifier;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.permissions.PermissionAttachment;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
@@ -41,17 +39,24 @@ import ru.endlesscode.rpginventory.inventory.slot.Slot;
 import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
 import ru.endlesscode.rpginventory.item.CustomItem;
 import ru.endlesscode.rpginventory.item.ItemManager;
+import ru.endlesscode.rpginventory.item.ItemStat;
+import ru.endlesscode.rpginventory.item.Modifier;
+import ru.endlesscode.rpginventory.item.StatSheet;
 import ru.endlesscode.rpginventory.misc.serialization.InventorySnapshot;
-import ru.endlesscode.rpginventory.pet.Attributes;
 import ru.endlesscode.rpginventory.pet.PetManager;
 import ru.endlesscode.rpginventory.pet.PetType;
 import ru.endlesscode.rpginventory.utils.ItemUtils;
 import ru.endlesscode.rpginventory.utils.Log;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Created by OsipXD on 09.11.2015
@@ -63,7 +68,9 @@ public class PlayerWrapper implements InventoryHolder {
     private final OfflinePlayer player;
     private final Inventory inventory;
     private final Map<String, Integer> buyedSlots = new HashMap<>();
-    private final List<String> permissions = new ArrayList<>();
+    private final Set<String> permissions = new HashSet<>();
+    private final List<ItemStack> passiveItems = new ArrayList<>();
+    private final List<ItemStack> passiveItemsView = Collections.unmodifiableList(this.passiveItems);
 
     @Nullable
     private InventoryView inventoryView;
@@ -74,6 +81,11 @@ public class PlayerWrapper implements InventoryHolder {
     private Backpack backpack = null;
     private LivingEntity pet;
 
+    @Nullable
+    private StatSheet stats = null;
+    @Nullable
+    private PermissionAttachment permissionAttachment = null;
+
     @Nullable
     private ItemStack savedChestplate = null;
     private boolean falling = false;
@@ -83,6 +95,7 @@ public class PlayerWrapper implements InventoryHolder {
     private String lastMessage = "";
     private long lastMessageTime = 0;
     private boolean pocketCraft = false;
+    private boolean changed = false;
 
     public PlayerWrapper(OfflinePlayer player) {
         this.player = player;
@@ -176,45 +189,49 @@ public class PlayerWrapper implements InventoryHolder {
         return true;
     }
 
-    public void addPermissions(@NotNull List<String> permissions) {
-        try {
-            for (String permission : permissions) {
-                if (RPGInventory.getPermissions().playerAdd(this.player.getPlayer(), permission)) {
-                    this.permissions.add(permission);
-                }
+    public void addPermissions(@NotNull Collection<String> permissions) {
+        for (String permission : permissions) {
+            if (this.permissions.add(permission)) {
+                this.getPermissionAttachment().setPermission(permission, true);
             }
-        } catch (Exception e) {
-            Log.w(e);
         }
     }
 
-    private void clearPermissions() {
-        try {
-            for (String permission : this.permissions) {
-                RPGInventory.getPermissions().playerRemove(this.player.getPlayer(), permission);
-            }
-
-            this.permissions.clear();
-        } catch (Exception e) {
-            Log.w(e);
+    private void removePermission(@NotNull String permission) {
+        if (this.permissions.remove(permission) && this.permissionAttachment != null) {
+            this.permissionAttachment.unsetPermission(permission);
         }
     }
 
-    private void clearStats() {
-        Player player = this.player.getPlayer();
-
-        AttributeInstance speedAttribute = player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
-        assert speedAttribute != null;
-        AttributeModifier rpgInvModifier = null;
-        for (AttributeModifier modifier : speedAttribute.getModifiers()) {
-            if (modifier.getUniqueId().compareTo(Attributes.SPEED_MODIFIER_ID) == 0) {
-                rpgInvModifier = modifier;
+    private void clearPermissions() {
+        if (this.permissionAttachment != null) {
+            try {
+                this.permissionAttachment.remove();
+            } catch (IllegalArgumentException e) {
+                // Attachment is already removed together with the player
+                Log.d(e);
             }
+            this.permissionAttachment = null;
         }
 
-        if (rpgInvModifier != null) {
-            speedAttribute.removeModifier(rpgInvModifier);
+        this.permissions.clear();
+    }
+
+    /**
+     * All permissions of equipped items are granted through one attachment,
+     * so they are not stored by the permission plugin and removed on quit.
+     */
+    @NotNull
+    private PermissionAttachment getPermissionAttachment() {
+        if (this.permissionAttachment == null) {
+            this.permissionAttachment = this.player.getPlayer().addAttachment(RPGInventory.getInstance());
         }
+
+        return this.permissionAttachment;
+    }
+
+    private void clearStats() {
+        StatsUpdater.clearModifiers(this.player.getPlayer());
     }
 
     @Nullable
@@ -320,6 +337,8 @@ public class PlayerWrapper implements InventoryHolder {
         }
 
         this.clearStats();
+        this.invalidateStats();
+        this.clearPermissions();
 
         // Removing pet
         if (PetManager.isEnabled()) {
@@ -332,33 +351,109 @@ public class PlayerWrapper implements InventoryHolder {
         }
     }
 
+    /**
+     * Returns modifiers of all stats. They are computed once and cached until equipment
+     * or vanilla level of the player will be changed. Levels and classes provided by other
+     * plugins via Mimic have no change events, so they are checked again on the next stats update.
+     */
+    @NotNull
+    public StatSheet getStats() {
+        if (this.stats == null) {
+            this.stats = ItemManager.computeStats(this.player.getPlayer());
+        }
+
+        return this.stats;
+    }
+
+    @NotNull
+    public Modifier getModifier(@NotNull ItemStat.StatType statType) {
+        return this.getStats().getModifier(statType);
+    }
+
+    public void invalidateStats() {
+        this.stats = null;
+    }
+
     public void updateStatsLater() {
-        new StatsUpdater(player.getPlayer()).runTaskLater(RPGInventory.getInstance(), 1);
+        StatsUpdater.requestUpdate(player.getPlayer());
     }
 
+    /**
+     * Grants permissions of equipped items. Only changes since the previous update are applied,
+     * so unchanged equipment doesn't touch the permission system at all.
+     */
     public void updatePermissions() {
         Player player = this.player.getPlayer();
-        this.clearPermissions();
-        List<CustomItem> customItems = new ArrayList<>();
-        for (ItemStack item : this.getInventory().getContents()) {
-            if (CustomItem.isCustomItem(item)) {
-                customItems.add(ItemManager.getCustomItem(item));
+        Set<String> equippedPermissions = new HashSet<>();
+        this.forEachEquippedItem(item -> collectPermissions(equippedPermissions, item));
+
+        collectPermissions(equippedPermissions, player.getEquipment().getItemInOffHand());
+        collectPermissions(equippedPermissions, player.getEquipment().getItemInMainHand());
+
+        for (String permission : new ArrayList<>(this.permissions)) {
+            if (!equippedPermissions.contains(permission)) {
+                this.removePermission(permission);
             }
         }
+        this.addPermissions(equippedPermissions);
+    }
+
+    /**
+     * Passes every item placed to the slots of the inventory to the action. Cups are skipped.
+     */
+    public void forEachEquippedItem(@NotNull Consumer<ItemStack> action) {
+        for (Slot slot : SlotManager.instance().getSlots()) {
+            for (int slotId : slot.getSlotIds()) {
+                ItemStack item = this.inventory.getItem(slotId);
+                if (ItemUtils.isNotEmpty(item) && !slot.isCup(item)) {
+                    action.accept(item);
+                }
+            }
+        }
+    }
 
-        ItemStack itemInOffHand = player.getEquipment().getItemInOffHand();
-        ItemStack itemInMainHand = player.getEquipment().getItemInMainHand();
-
-        if (CustomItem.isCustomItem(itemInOffHand)) {
-            customItems.add(ItemManager.getCustomItem(itemInOffHand));
+    /**
+     * Passes every item of passive slots to the action. Cups are skipped.
+     */
+    public void forEachPassiveItem(@NotNull Consumer<ItemStack> action) {
+        for (Slot slot : SlotManager.instance().getPassiveSlots()) {
+            for (int slotId : slot.getSlotIds()) {
+                ItemStack item = this.inventory.getItem(slotId);
+                if (ItemUtils.isNotEmpty(item) && !InventoryManager.isEmptySlot(item)) {
+                    action.accept(item);
+                }
+            }
         }
+    }
 
-        if (CustomItem.isCustomItem(itemInMainHand)) {
-            customItems.add(ItemManager.getCustomItem(itemInMainHand));
+    /**
+     * Passes every item of active slots to the action. Cups are skipped.
+     */
+    public void forEachActiveItem(@NotNull Consumer<ItemStack> action) {
+        for (Slot slot : SlotManager.instance().getActiveSlots()) {
+            ItemStack item = this.inventory.getItem(slot.getSlotId());
+            if (ItemUtils.isNotEmpty(item) && !InventoryManager.isQuickEmptySlot(item)) {
+                action.accept(item);
+            }
         }
+    }
+
+    /**
+     * Returns items of passive slots. The same view is refilled on every call,
+     * so it shouldn't be kept or used after the next call.
+     */
+    @NotNull
+    public List<ItemStack> getPassiveItems() {
+        this.passiveItems.clear();
+        this.forEachPassiveItem(this.passiveItems::add);
+        return this.passiveItemsView;
+    }
 
-        for (CustomItem customItem : customItems) {
-            customItem.onEquip(player);
+    private static void collectPermissions(@NotNull Set<String> permissions, @Nullable ItemStack item) {
+        CustomItem customItem;
+        if (CustomItem.isCustomItem(item) && (customItem = ItemManager.getCustomItem(item)) != null
+                && customItem.getPermissions() != null) {
+            permissions.addAll(customItem.getPermissions());
         }
     }
 
@@ -388,7 +483,19 @@ public class PlayerWrapper implements InventoryHolder {
         return this.pocketCraft;
     }
 
+    /**
+     * Marks that inventory has been changed since the last save.
+     */
+    public void markChanged() {
+        this.changed = true;
+    }
+
+    public boolean isChanged() {
+        return this.changed;
+    }
+
     InventorySnapshot createSnapshot() {
+        this.changed = false;
         return InventorySnapshot.create(this);
     }
 }
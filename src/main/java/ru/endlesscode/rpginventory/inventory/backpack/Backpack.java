@@ -25,7 +25,6 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
-import ru.endlesscode.rpginventory.misc.config.Config;
 import ru.endlesscode.rpginventory.utils.Log;
 
 import java.util.*;
@@ -40,7 +39,7 @@ public class Backpack implements ConfigurationSerializable {
     private static final String BP_ID = "id";
     private static final String BP_TYPE = "type";
     private static final String BP_CONTENTS = "contents";
-    private static final String BP_LAST_USE = "last-use";
+    public static final String BP_LAST_USE = "last-use";
 
     private final UUID id;
     @NotNull
@@ -48,6 +47,8 @@ public class Backpack implements ConfigurationSerializable {
 
     private long lastUse;
     private ItemStack[] contents;
+    private boolean changed = false;
+    private int viewers = 0;
 
     public Backpack(@NotNull BackpackType backpackType) {
         this(backpackType, UUID.randomUUID());
@@ -86,7 +87,24 @@ public class Backpack implements ConfigurationSerializable {
         return serializedBackpack;
     }
 
-    UUID getUniqueId() {
+    /**
+     * Creates copy of the backpack that can be safely serialized off the main thread.
+     */
+    @NotNull
+    Backpack createSnapshot() {
+        this.changed = false;
+        Backpack snapshot = new Backpack(this.backpackType, this.id);
+        ItemStack[] snapshotContents = new ItemStack[this.contents.length];
+        for (int i = 0; i < this.contents.length; i++) {
+            snapshotContents[i] = this.contents[i] == null ? null : this.contents[i].clone();
+        }
+        snapshot.setContents(snapshotContents);
+        snapshot.setLastUse(this.lastUse);
+
+        return snapshot;
+    }
+
+    public UUID getUniqueId() {
         return this.id;
     }
 
@@ -117,6 +135,20 @@ public class Backpack implements ConfigurationSerializable {
 
         player.openInventory(inventory);
         InventoryManager.get(player).setBackpack(this);
+        this.viewers++;
+    }
+
+    public void onClose() {
+        this.viewers = Math.max(0, this.viewers - 1);
+        this.onUse();
+    }
+
+    boolean isOpened() {
+        return this.viewers > 0;
+    }
+
+    public ItemStack[] getContents() {
+        return this.contents;
     }
 
     public void setContents(ItemStack[] contents) {
@@ -125,14 +157,18 @@ public class Backpack implements ConfigurationSerializable {
 
     public void onUse() {
         this.lastUse = System.currentTimeMillis();
+        this.changed = true;
     }
 
-    public void setLastUse(long lastUse) {
-        this.lastUse = lastUse;
+    boolean isChanged() {
+        return this.changed;
     }
 
-    boolean isOverdue() {
-        int lifeTime = Config.getConfig().getInt("backpacks.expiration-time", 0);
-        return lifeTime != 0 && (System.currentTimeMillis() - this.lastUse) / (1_000 * 60 * 60 * 24) > lifeTime;
+    public long getLastUse() {
+        return this.lastUse;
+    }
+
+    public void setLastUse(long lastUse) {
+        this.lastUse = lastUse;
     }
 }
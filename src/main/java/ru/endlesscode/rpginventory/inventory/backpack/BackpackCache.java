@@ -0,0 +1,75 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory.backpack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps recently used backpacks in memory.
+ * Least recently used backpack is saved (if it was changed) and removed when the cache is full.
+ * Opened backpacks are never removed.
+ * Keys of loaded backpacks can be checked from any thread.
+ */
+class BackpackCache extends LinkedHashMap<UUID, Backpack> {
+
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    private final Set<UUID> loaded = ConcurrentHashMap.newKeySet();
+    private int capacity = DEFAULT_CAPACITY;
+
+    BackpackCache() {
+        super(16, 0.75f, true);
+    }
+
+    void setCapacity(int capacity) {
+        this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+    }
+
+    boolean isLoaded(UUID uuid) {
+        return loaded.contains(uuid);
+    }
+
+    @Override
+    public Backpack put(UUID key, Backpack value) {
+        loaded.add(key);
+        return super.put(key, value);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        loaded.clear();
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<UUID, Backpack> eldest) {
+        Backpack backpack = eldest.getValue();
+        if (size() <= capacity || backpack.isOpened()) {
+            return false;
+        }
+
+        BackpackManager.saveBackpack(backpack);
+        loaded.remove(eldest.getKey());
+        return true;
+    }
+}
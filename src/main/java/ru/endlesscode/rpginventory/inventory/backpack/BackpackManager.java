@@ -37,8 +37,9 @@ import ru.endlesscode.rpginventory.inventory.slot.Slot;
 import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
 import ru.endlesscode.rpginventory.item.Texture;
 import ru.endlesscode.rpginventory.misc.config.Config;
+import ru.endlesscode.rpginventory.misc.serialization.SaveQueue;
 import ru.endlesscode.rpginventory.misc.serialization.Serialization;
-import ru.endlesscode.rpginventory.utils.FileUtils;
+import ru.endlesscode.rpginventory.misc.serialization.StorageBackend;
 import ru.endlesscode.rpginventory.utils.ItemUtils;
 import ru.endlesscode.rpginventory.utils.Log;
 
@@ -47,9 +48,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by OsipXD on 05.10.2015
@@ -61,12 +64,14 @@ public class BackpackManager {
     private static final String CONFIG_NAME = "backpacks.yml";
 
     private static final HashMap<String, BackpackType> BACKPACK_TYPES = new HashMap<>();
-    private static final HashMap<UUID, Backpack> BACKPACKS = new HashMap<>();
+    private static final BackpackCache BACKPACKS = new BackpackCache();
     private static int BACKPACK_LIMIT;
+    private static long EXPIRATION_TIME;
 
     private static Reporter reporter;
 
     public static boolean init(@NotNull RPGInventory instance) {
+        BackpackSweeper.stop();
         if (!isEnabled()) {
             Log.i("Slot for backpacks not found");
             return false;
@@ -101,13 +106,17 @@ public class BackpackManager {
                 return false;
             }
 
+            // Backpacks are loaded on demand, when they are opened
             BACKPACKS.clear();
-            BackpackManager.loadBackpacks();
+            BACKPACKS.setCapacity(Config.getConfig().getInt("backpacks.cache-size", 0));
 
             Log.i("{0} backpack type(s) has been loaded", BACKPACK_TYPES.size());
-            Log.i("{0} backpack(s) has been loaded", BACKPACKS.size());
 
             BACKPACK_LIMIT = Config.getConfig().getInt("backpacks.limit", 0);
+            EXPIRATION_TIME = TimeUnit.DAYS.toMillis(Config.getConfig().getInt("backpacks.expiration-time", 0));
+            if (EXPIRATION_TIME > 0) {
+                BackpackSweeper.start(instance);
+            }
 
             // Register events
             instance.getServer().getPluginManager().registerEvents(new BackpackListener(), instance);
@@ -160,10 +169,10 @@ public class BackpackManager {
             return false;
         }
 
-        Backpack backpack;
         String bpUid = ItemUtils.getTag(bpItem, ItemUtils.BACKPACK_UID_TAG);
         UUID uuid = bpUid.isEmpty() ? null : UUID.fromString(bpUid);
-        if (!BACKPACKS.containsKey(uuid)) {
+        Backpack backpack = uuid == null ? null : getBackpack(uuid);
+        if (backpack == null) {
             if (uuid == null) {
                 backpack = type.createBackpack();
                 ItemUtils.setTag(bpItem, ItemUtils.BACKPACK_UID_TAG, backpack.getUniqueId().toString());
@@ -171,65 +180,83 @@ public class BackpackManager {
                 backpack = type.createBackpack(uuid);
             }
 
+            backpack.onUse();
             BACKPACKS.put(backpack.getUniqueId(), backpack);
-        } else {
-            backpack = BACKPACKS.get(uuid);
         }
 
         backpack.open(player);
         return true;
     }
 
+    @Nullable
+    private static Backpack getBackpack(@NotNull UUID uuid) {
+        Backpack backpack = BACKPACKS.get(uuid);
+        if (backpack == null) {
+            backpack = tryToLoadBackpack(uuid);
+            if (backpack != null) {
+                BACKPACKS.put(uuid, backpack);
+            }
+        }
+
+        return backpack;
+    }
+
     @Nullable
     public static BackpackType getBackpackType(String bpId) {
         return BACKPACK_TYPES.get(bpId);
     }
 
     public static void saveBackpacks() {
-        Path folder = RPGInventory.getInstance().getDataPath().resolve("backpacks");
-
-        try {
-            Files.createDirectories(folder);
-            for (Map.Entry<UUID, Backpack> entry : BACKPACKS.entrySet()) {
-                Path bpFile = folder.resolve(entry.getKey().toString() + ".bp");
-                Serialization.save(entry.getValue(), bpFile);
-            }
-        } catch (IOException | NullPointerException e) {
-            Log.w(e, "Error on backpack save");
+        for (Backpack backpack : BACKPACKS.values()) {
+            saveBackpack(backpack);
         }
     }
 
-    private static void loadBackpacks() {
-        try {
-            Path folder = RPGInventory.getInstance().getDataPath().resolve("backpacks");
-            Files.createDirectories(folder);
-
-            Files.list(folder)
-                    .filter((file) -> Files.isRegularFile(file) && file.toString().endsWith(".bp"))
-                    .forEach(BackpackManager::tryToLoadBackpack);
-        } catch (IOException e) {
-            Log.w(e, "Error on backpack loading");
+    static void saveBackpack(@NotNull Backpack backpack) {
+        if (backpack.isChanged()) {
+            SaveQueue.submit(StorageBackend.Kind.BACKPACK, backpack.getUniqueId(), backpack.createSnapshot());
         }
     }
 
-    private static void tryToLoadBackpack(@NotNull Path path) {
+    @Nullable
+    private static Backpack tryToLoadBackpack(@NotNull UUID uuid) {
+        SaveQueue.await(StorageBackend.Kind.BACKPACK, uuid);
+
         try {
-            loadBackpack(path);
+            return loadBackpack(uuid);
         } catch (IOException | InvalidConfigurationException e) {
             Log.w(e);
-            FileUtils.resolveException(path);
-            Log.s("Error on loading backpack {0}", path.getFileName().toString());
-            Log.s("Will be created new backpack. Old file was renamed.");
+            Serialization.backupBroken(StorageBackend.Kind.BACKPACK, uuid);
+            Log.s("Error on loading backpack {0}", uuid.toString());
+            Log.s("Will be created new backpack. Old data was backed up.");
+            return null;
         }
     }
 
-    private static void loadBackpack(@NotNull Path path) throws IOException, InvalidConfigurationException {
-        Backpack backpack = Serialization.loadBackpack(path);
-        if (backpack == null || backpack.isOverdue()) {
-            Files.delete(path);
-        } else {
-            BACKPACKS.put(backpack.getUniqueId(), backpack);
+    @Nullable
+    private static Backpack loadBackpack(@NotNull UUID uuid) throws IOException, InvalidConfigurationException {
+        Backpack backpack = Serialization.loadBackpack(uuid);
+        if (backpack == null) {
+            Serialization.getStorage().delete(StorageBackend.Kind.BACKPACK, uuid);
         }
+
+        return backpack;
+    }
+
+    @NotNull
+    public static Set<UUID> getLoadedBackpacks() {
+        return new HashSet<>(BACKPACKS.keySet());
+    }
+
+    /**
+     * Checks that backpack is loaded. It is safe to call this method asynchronously.
+     */
+    static boolean isLoaded(@NotNull UUID uuid) {
+        return BACKPACKS.isLoaded(uuid);
+    }
+
+    static boolean isOverdue(long lastUse) {
+        return EXPIRATION_TIME > 0 && System.currentTimeMillis() - lastUse > EXPIRATION_TIME;
     }
 
     @Contract("null -> false")
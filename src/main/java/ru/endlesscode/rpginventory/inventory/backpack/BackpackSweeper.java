@@ -0,0 +1,148 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory.backpack;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
+import ru.endlesscode.rpginventory.misc.serialization.SaveQueue;
+import ru.endlesscode.rpginventory.misc.serialization.Serialization;
+import ru.endlesscode.rpginventory.misc.serialization.StorageBackend;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes overdue backpacks in background.
+ * <p>
+ * Stored backpacks are checked in small time-sliced batches, only last use time
+ * is read from every backpack. Loaded backpacks are skipped. Overdue backpack is
+ * deleted in its save queue stripe, so it can't be deleted while it is saving or loading.
+ */
+class BackpackSweeper extends TrackedBukkitRunnable {
+
+    private static final long PERIOD_TICKS = 20;
+    private static final long BATCH_BUDGET = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SWEEP_INTERVAL = TimeUnit.HOURS.toNanos(1);
+
+    @Nullable
+    private static BackpackSweeper instance;
+
+    @Nullable
+    private Iterator<UUID> iterator;
+    private long nextSweepAt = System.nanoTime();
+    private int deleted = 0;
+
+    private BackpackSweeper() {
+    }
+
+    /**
+     * Starts the sweeper. Previously started sweeper is stopped.
+     */
+    static void start(@NotNull Plugin plugin) {
+        stop();
+        instance = new BackpackSweeper();
+        instance.runTaskTimerAsynchronously(plugin, PERIOD_TICKS, PERIOD_TICKS);
+    }
+
+    static void stop() {
+        if (instance != null) {
+            instance.cancel();
+            instance = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long startedAt = System.nanoTime();
+        if (this.iterator == null && !this.startSweep(startedAt)) {
+            return;
+        }
+
+        while (System.nanoTime() - startedAt < BATCH_BUDGET) {
+            if (!this.iterator.hasNext()) {
+                this.finishSweep();
+                return;
+            }
+
+            this.sweep(this.iterator.next());
+        }
+    }
+
+    private boolean startSweep(long now) {
+        if (now - this.nextSweepAt < 0) {
+            return false;
+        }
+
+        try {
+            this.iterator = Serialization.getStorage().list(StorageBackend.Kind.BACKPACK).iterator();
+            this.deleted = 0;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.w(e, "Error on sweeping of backpacks");
+            this.nextSweepAt = now + SWEEP_INTERVAL;
+            return false;
+        }
+    }
+
+    private void finishSweep() {
+        this.iterator = null;
+        this.nextSweepAt = System.nanoTime() + SWEEP_INTERVAL;
+
+        if (this.deleted > 0) {
+            Log.i("{0} overdue backpack(s) has been deleted", this.deleted);
+        }
+    }
+
+    private void sweep(UUID uuid) {
+        if (BackpackManager.isLoaded(uuid)) {
+            return;
+        }
+
+        try {
+            if (isOverdue(uuid) && SaveQueue.execute(StorageBackend.Kind.BACKPACK, uuid, () -> deleteIfOverdue(uuid))) {
+                this.deleted++;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Broken backpack will be handled on its loading
+            Log.d(e);
+        }
+    }
+
+    /**
+     * Checks the backpack again, because it could be opened or saved after the first check.
+     */
+    private static boolean deleteIfOverdue(@NotNull UUID uuid) throws IOException {
+        if (BackpackManager.isLoaded(uuid) || !isOverdue(uuid)) {
+            return false;
+        }
+
+        Serialization.getStorage().delete(StorageBackend.Kind.BACKPACK, uuid);
+        return true;
+    }
+
+    private static boolean isOverdue(@NotNull UUID uuid) throws IOException {
+        long lastUse = Serialization.readBackpackLastUse(uuid);
+        return lastUse > 0 && BackpackManager.isOverdue(lastUse);
+    }
+}
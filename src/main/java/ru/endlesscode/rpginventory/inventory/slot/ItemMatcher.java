@@ -0,0 +1,178 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory.slot;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.utils.ItemUtils;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Item patterns of the slot, compiled once on load.
+ * <p>
+ * Pattern is one of {@code ALL}, {@code MATERIAL}, {@code MATERIAL:data} or {@code MATERIAL:min-max}.
+ * Materials without data are stored in the set, data ranges are stored as sorted
+ * non-overlapping intervals of the material, so matching doesn't allocate anything.
+ */
+final class ItemMatcher {
+
+    private static final String ALL = "ALL";
+    private static final int[] ANY_DATA = new int[0];
+
+    private final boolean matchAll;
+    @NotNull
+    private final Set<Material> materials;
+    /**
+     * Flat arrays of merged intervals: {@code [min0, max0, min1, max1, ...]}.
+     */
+    @NotNull
+    private final Map<Material, int[]> ranges;
+
+    private ItemMatcher(boolean matchAll, @NotNull Set<Material> materials, @NotNull Map<Material, int[]> ranges) {
+        this.matchAll = matchAll;
+        this.materials = materials;
+        this.ranges = ranges;
+    }
+
+    @NotNull
+    static ItemMatcher compile(@NotNull Collection<String> patterns) {
+        boolean matchAll = false;
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        Map<Material, List<int[]>> intervals = new EnumMap<>(Material.class);
+
+        for (String pattern : patterns) {
+            if (pattern.equals(ALL)) {
+                matchAll = true;
+                continue;
+            }
+
+            String[] data = pattern.split(":");
+            Material material = Material.getMaterial(data[0]);
+            if (material == null) {
+                // Unknown materials never match any item
+                continue;
+            }
+
+            int[] interval = data.length > 1 ? parseInterval(data[1]) : ANY_DATA;
+            if (interval == null) {
+                continue;
+            } else if (interval == ANY_DATA) {
+                materials.add(material);
+            } else {
+                intervals.computeIfAbsent(material, key -> new ArrayList<>()).add(interval);
+            }
+        }
+
+        Map<Material, int[]> ranges = new EnumMap<>(Material.class);
+        for (Map.Entry<Material, List<int[]>> entry : intervals.entrySet()) {
+            if (!materials.contains(entry.getKey())) {
+                ranges.put(entry.getKey(), merge(entry.getValue()));
+            }
+        }
+
+        return new ItemMatcher(matchAll, materials, ranges);
+    }
+
+    boolean matches(@NotNull ItemStack item) {
+        Material material = item.getType();
+        // Texture data is read from item meta, so it is read only if it is needed
+        int textureData = !this.matchAll && this.ranges.containsKey(material) ? ItemUtils.getTextureData(item) : 0;
+        return this.matches(material, textureData);
+    }
+
+    boolean matches(@NotNull Material material, int textureData) {
+        if (this.matchAll || this.materials.contains(material)) {
+            return true;
+        }
+
+        int[] intervals = this.ranges.get(material);
+        return intervals != null && contains(intervals, textureData);
+    }
+
+    /**
+     * @return Interval {@code [min, max]}, {@link #ANY_DATA} if the pattern matches any data,
+     * or {@code null} if the data is wrong
+     */
+    @Nullable
+    private static int[] parseInterval(@NotNull String value) {
+        String[] borders = value.split("-");
+        try {
+            if (borders.length == 1) {
+                int data = Integer.parseInt(borders[0]);
+                return new int[]{data, data};
+            } else if (borders.length == 2) {
+                int min = Integer.parseInt(borders[0]);
+                int max = Integer.parseInt(borders[1]);
+                return new int[]{Math.min(min, max), Math.max(min, max)};
+            }
+        } catch (NumberFormatException e) {
+            Log.w("Wrong texture data \"{0}\" in the slot items", value);
+            return null;
+        }
+
+        return ANY_DATA;
+    }
+
+    @NotNull
+    private static int[] merge(@NotNull List<int[]> intervals) {
+        intervals.sort((first, second) -> Integer.compare(first[0], second[0]));
+
+        int[] merged = new int[intervals.size() * 2];
+        int size = 0;
+        for (int[] interval : intervals) {
+            // Join with previous interval if they overlap or are adjacent
+            if (size > 0 && (long) interval[0] <= (long) merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], interval[1]);
+            } else {
+                merged[size++] = interval[0];
+                merged[size++] = interval[1];
+            }
+        }
+
+        int[] result = new int[size];
+        System.arraycopy(merged, 0, result, 0, size);
+        return result;
+    }
+
+    private static boolean contains(@NotNull int[] intervals, int value) {
+        // Binary search of the last interval which starts before the value
+        int low = 0;
+        int high = intervals.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (intervals[mid * 2] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return high >= 0 && value <= intervals[high * 2 + 1];
+    }
+}
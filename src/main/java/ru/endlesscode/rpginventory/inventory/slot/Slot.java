@@ -49,11 +49,20 @@ public class Slot {
 
     private final List<String> allowed = new ArrayList<>();
     private final List<String> denied = new ArrayList<>();
+    @NotNull
+    private final ItemMatcher allowedMatcher;
+    @NotNull
+    private final ItemMatcher deniedMatcher;
 
     @NotNull
     private final List<Integer> slotIds;
     @NotNull
     private final ItemStack cup;
+    /**
+     * Cup without placeholder tag, as it was created by previous versions.
+     */
+    @NotNull
+    private final ItemStack legacyCup;
     private final int requiredLevel;
     private final int cost;
     private final int quickSlot;
@@ -97,6 +106,8 @@ public class Slot {
                 this.allowed.add("ELYTRA");
             }
         }
+        this.allowedMatcher = ItemMatcher.compile(this.allowed);
+        this.deniedMatcher = ItemMatcher.compile(this.denied);
 
         // Setup cup slot
         Texture texture = Texture.parseTexture(config.getString("holder.item"));
@@ -107,47 +118,8 @@ public class Slot {
             meta.setLore(config.contains("holder.lore") ? StringUtils.coloredLines(config.getStringList("holder.lore")) : Collections.singletonList("[Holder lore missing]"));
             cup.setItemMeta(meta);
         }
-        this.cup = cup;
-    }
-
-    private static boolean searchItem(List<String> materialList, @NotNull ItemStack itemStack) {
-        for (String material : materialList) {
-            String[] data = material.split(":");
-
-            if (material.equals("ALL")) {
-                return true;
-            }
-
-            if (!itemStack.getType().name().equals(data[0])) {
-                continue;
-            }
-
-            if (data.length > 1) {
-                String[] borders = data[1].split("-");
-                int itemTextureData = ItemUtils.getTextureData(itemStack);
-
-                if (borders.length == 1 && itemTextureData != Integer.parseInt(data[1])) {
-                    continue;
-                } else if (borders.length == 2) {
-                    int min = Integer.parseInt(borders[0]);
-                    int max = Integer.parseInt(borders[1]);
-
-                    if (min > max) {
-                        int temp = max;
-                        max = min;
-                        min = temp;
-                    }
-
-                    if (itemTextureData < min || itemTextureData > max) {
-                        continue;
-                    }
-                }
-            }
-
-            return true;
-        }
-
-        return false;
+        this.legacyCup = cup;
+        this.cup = ItemUtils.setTag(cup.clone(), ItemUtils.PLACEHOLDER_TAG, name);
     }
 
     @NotNull
@@ -156,7 +128,12 @@ public class Slot {
     }
 
     public boolean isCup(@Nullable ItemStack itemStack) {
-        return this.cup.equals(itemStack);
+        if (itemStack == null || itemStack.getType() != this.cup.getType()) {
+            return false;
+        }
+
+        String marker = ItemUtils.getTag(itemStack, ItemUtils.PLACEHOLDER_TAG);
+        return marker.isEmpty() ? this.legacyCup.equals(itemStack) : this.name.equals(marker);
     }
 
     boolean containsSlot(int slot) {
@@ -184,11 +161,11 @@ public class Slot {
     }
 
     private boolean isDenied(@NotNull ItemStack item) {
-        return searchItem(this.denied, item);
+        return this.deniedMatcher.matches(item);
     }
 
     private boolean isAllowed(@NotNull ItemStack item) {
-        return searchItem(this.allowed, item);
+        return this.allowedMatcher.matches(item);
     }
 
     @NotNull
@@ -18,13 +18,16 @@
 
 package ru.endlesscode.rpginventory.inventory.slot;
 
+import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.rpginventory.RPGInventory;
+import ru.endlesscode.rpginventory.utils.ItemUtils;
 import ru.endlesscode.rpginventory.utils.Log;
 import ru.endlesscode.rpginventory.utils.SafeEnums;
 
@@ -32,8 +35,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Created by OsipXD on 05.09.2015
@@ -44,11 +54,32 @@ public class SlotManager {
 
     private static final String CONFIG_NAME = "slots.yml";
 
+    private static final int CONTAINER_SIZE = 54;
+    private static final int QUICKBAR_SIZE = 41;
+
     @Nullable
     private static SlotManager slotManager = null;
 
     private final List<Slot> slots = new ArrayList<>();
 
+    // Lookup tables, they are built once when all slots are loaded
+    private final Slot[] containerSlots = new Slot[CONTAINER_SIZE];
+    private final Slot[] quickbarSlots = new Slot[QUICKBAR_SIZE];
+    private final ItemStack[] cupTemplates = new ItemStack[CONTAINER_SIZE];
+    private final Map<String, Slot> slotsByName = new HashMap<>();
+    private final Set<Material> cupMaterials = EnumSet.noneOf(Material.class);
+    private final Map<Slot.SlotType, List<Slot>> slotsByType = new EnumMap<>(Slot.SlotType.class);
+    private List<Slot> quickSlots = Collections.emptyList();
+    private List<Slot> passiveSlots = Collections.emptyList();
+    @Nullable
+    private Slot petSlot;
+    @Nullable
+    private Slot shieldSlot;
+    @Nullable
+    private Slot backpackSlot;
+    @Nullable
+    private Slot elytraSlot;
+
     @NotNull
     private final Path slotsFile;
     @NotNull
@@ -86,6 +117,63 @@ public class SlotManager {
                 Log.w("Slot \"{0}\" was not been added.", slot.getName());
             }
         }
+
+        this.buildLookupTables();
+    }
+
+    private void buildLookupTables() {
+        Map<Slot.SlotType, List<Slot>> slotsByType = new EnumMap<>(Slot.SlotType.class);
+        List<Slot> quickSlots = new ArrayList<>();
+        List<Slot> passiveSlots = new ArrayList<>();
+
+        for (Slot slot : this.slots) {
+            ItemStack cup = slot.getCup();
+            for (int slotId : slot.getSlotIds()) {
+                this.containerSlots[slotId] = slot;
+                this.cupTemplates[slotId] = cup;
+            }
+
+            int quickSlot = slot.getQuickSlot();
+            if ((slot.isQuick() || slot.getSlotType() == Slot.SlotType.SHIELD)
+                    && quickSlot >= 0 && quickSlot < QUICKBAR_SIZE && this.quickbarSlots[quickSlot] == null) {
+                this.quickbarSlots[quickSlot] = slot;
+            }
+
+            this.slotsByName.putIfAbsent(slot.getName().toLowerCase(Locale.ENGLISH), slot);
+            this.cupMaterials.add(cup.getType());
+            slotsByType.computeIfAbsent(slot.getSlotType(), type -> new ArrayList<>()).add(slot);
+
+            if (slot.isQuick()) {
+                quickSlots.add(slot);
+            }
+
+            final Slot.SlotType type = slot.getSlotType();
+            if (type == Slot.SlotType.PASSIVE || type == Slot.SlotType.BACKPACK || type == Slot.SlotType.ELYTRA) {
+                passiveSlots.add(slot);
+            }
+        }
+
+        for (Map.Entry<Slot.SlotType, List<Slot>> entry : slotsByType.entrySet()) {
+            this.slotsByType.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.quickSlots = Collections.unmodifiableList(quickSlots);
+        this.passiveSlots = Collections.unmodifiableList(passiveSlots);
+
+        this.petSlot = this.getFirstSlot(Slot.SlotType.PET);
+        this.shieldSlot = this.getFirstSlot(Slot.SlotType.SHIELD);
+        this.backpackSlot = this.getFirstSlot(Slot.SlotType.BACKPACK);
+        this.elytraSlot = this.getFirstSlot(Slot.SlotType.ELYTRA);
+    }
+
+    @Nullable
+    private Slot getFirstSlot(@NotNull Slot.SlotType slotType) {
+        List<Slot> slots = this.getSlotsByType(slotType);
+        return slots.isEmpty() ? null : slots.get(0);
+    }
+
+    @NotNull
+    private List<Slot> getSlotsByType(@NotNull Slot.SlotType slotType) {
+        return this.slotsByType.getOrDefault(slotType, Collections.emptyList());
     }
 
     public static boolean init() {
@@ -164,8 +252,29 @@ public class SlotManager {
 
     @Nullable
     public Slot getSlot(String name) {
+        return name == null ? null : this.slotsByName.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Finds slot by its cup. Items of other materials are rejected without reading of their tags.
+     *
+     * @return Slot of the cup, or {@code null} if the item is not a cup
+     */
+    @Nullable
+    public Slot getSlotByCup(@Nullable ItemStack item) {
+        if (item == null || !this.cupMaterials.contains(item.getType())) {
+            return null;
+        }
+
+        String marker = ItemUtils.getTag(item, ItemUtils.PLACEHOLDER_TAG);
+        if (!marker.isEmpty()) {
+            Slot slot = this.getSlot(marker);
+            return slot != null && slot.getName().equals(marker) ? slot : null;
+        }
+
+        // Cups created by previous versions have no marker
         for (Slot slot : this.slots) {
-            if (slot.getName().equalsIgnoreCase(name)) {
+            if (slot.isCup(item)) {
                 return slot;
             }
         }
@@ -175,127 +284,67 @@ public class SlotManager {
 
     @Nullable
     public Slot getSlot(int slotId, InventoryType.SlotType slotType) {
-        for (Slot slot : this.slots) {
-            if (slotType == InventoryType.SlotType.QUICKBAR) {
-                if ((slot.isQuick() || slot.getSlotType() == Slot.SlotType.SHIELD) && slot.getQuickSlot() == slotId) {
-                    return slot;
-                }
-            } else if (slot.containsSlot(slotId)) {
-                return slot;
-            }
-        }
+        Slot[] index = slotType == InventoryType.SlotType.QUICKBAR ? this.quickbarSlots : this.containerSlots;
+        return slotId >= 0 && slotId < index.length ? index[slotId] : null;
+    }
 
-        return null;
+    /**
+     * Returns cup of the container slot without copying, to fill inventory contents at once.
+     * Returned item is shared, so it must not be modified.
+     */
+    @Nullable
+    public ItemStack getCupTemplate(int slotId) {
+        return slotId >= 0 && slotId < this.cupTemplates.length ? this.cupTemplates[slotId] : null;
     }
 
     @NotNull
     public List<Slot> getQuickSlots() {
-        List<Slot> quickSlots = new ArrayList<>();
-        for (Slot slot : this.slots) {
-            if (slot.isQuick()) {
-                quickSlots.add(slot);
-            }
-        }
-
-        return quickSlots;
+        return this.quickSlots;
     }
 
     @NotNull
     public List<Slot> getPassiveSlots() {
-        List<Slot> passiveSlots = new ArrayList<>();
-        for (Slot slot : this.slots) {
-            final Slot.SlotType type = slot.getSlotType();
-            if (type == Slot.SlotType.PASSIVE || type == Slot.SlotType.BACKPACK || type == Slot.SlotType.ELYTRA) {
-                passiveSlots.add(slot);
-            }
-        }
-
-        return passiveSlots;
+        return this.passiveSlots;
     }
 
     @NotNull
     public List<Slot> getActiveSlots() {
-        List<Slot> activeSlots = new ArrayList<>();
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.ACTIVE) {
-                activeSlots.add(slot);
-            }
-        }
-
-        return activeSlots;
+        return this.getSlotsByType(Slot.SlotType.ACTIVE);
     }
 
     @NotNull
     public List<Slot> getArmorSlots() {
-        List<Slot> armorSlots = new ArrayList<>(4);
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.ARMOR) {
-                armorSlots.add(slot);
-            }
-        }
-
-        return armorSlots;
+        return this.getSlotsByType(Slot.SlotType.ARMOR);
     }
 
     @NotNull
     public List<Slot> getInfoSlots() {
-        List<Slot> infoSlots = new ArrayList<>();
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.INFO) {
-                infoSlots.add(slot);
-            }
-        }
-
-        return infoSlots;
+        return this.getSlotsByType(Slot.SlotType.INFO);
     }
 
     @NotNull
     public List<Slot> getSlots() {
-        return this.slots;
+        return Collections.unmodifiableList(this.slots);
     }
 
     @Nullable
     public Slot getPetSlot() {
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.PET) {
-                return slot;
-            }
-        }
-
-        return null;
+        return this.petSlot;
     }
 
     @Nullable
     public Slot getShieldSlot() {
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.SHIELD) {
-                return slot;
-            }
-        }
-
-        return null;
+        return this.shieldSlot;
     }
 
     @Nullable
     public Slot getBackpackSlot() {
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.BACKPACK) {
-                return slot;
-            }
-        }
-
-        return null;
+        return this.backpackSlot;
     }
 
     @Nullable
     public Slot getElytraSlot() {
-        for (Slot slot : this.slots) {
-            if (slot.getSlotType() == Slot.SlotType.ELYTRA) {
-                return slot;
-            }
-        }
-
-        return null;
+        return this.elytraSlot;
     }
 
     public void saveDefaults() {
@@ -45,6 +45,7 @@ public class CustomItem extends ClassedItem {
     @NotNull
     private final String name;
     private final List<ItemStat> stats = new ArrayList<>();
+    private final ItemStat[] indexedStats = new ItemStat[ItemStat.StatType.values().length];
 
     // Not required options
     @Nullable
@@ -75,7 +76,12 @@ public class CustomItem extends ClassedItem {
                 String[] statParts = stat.split(" ");
                 ItemStat.StatType statType = SafeEnums.valueOf(ItemStat.StatType.class, statParts[0], "stat type");
                 if (statType != null) {
-                    this.stats.add(new ItemStat(statType, statParts[1]));
+                    ItemStat itemStat = new ItemStat(statType, statParts[1]);
+                    this.stats.add(itemStat);
+                    // Only the first stat of each type is effective
+                    if (this.indexedStats[statType.ordinal()] == null) {
+                        this.indexedStats[statType.ordinal()] = itemStat;
+                    }
                 }
             }
         }
@@ -146,13 +152,19 @@ public class CustomItem extends ClassedItem {
 
     @Nullable
     ItemStat getStat(ItemStat.StatType type) {
-        for (ItemStat stat : this.stats) {
-            if (stat.getType() == type) {
-                return stat;
-            }
-        }
+        return this.indexedStats[type.ordinal()];
+    }
 
-        return null;
+    /**
+     * Returns effective stats indexed by {@link ItemStat.StatType#ordinal()}, absent stats are {@code null}.
+     */
+    @NotNull ItemStat[] getIndexedStats() {
+        return indexedStats;
+    }
+
+    @Nullable
+    public List<String> getPermissions() {
+        return permissions;
     }
 
     public boolean isDrop() {
@@ -29,6 +29,7 @@ import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.rpginventory.RPGInventory;
 import ru.endlesscode.rpginventory.event.listener.ItemListener;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
+import ru.endlesscode.rpginventory.inventory.PlayerWrapper;
 import ru.endlesscode.rpginventory.misc.FileLanguage;
 import ru.endlesscode.rpginventory.misc.config.Config;
 import ru.endlesscode.rpginventory.pet.PetManager;
@@ -116,35 +117,27 @@ public class ItemManager {
     }
 
     public static Modifier getModifier(Player player, ItemStat.StatType statType) {
-        return getModifier(player, statType, false);
+        return getStats(player).getModifier(statType);
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private static Modifier getModifier(Player player, ItemStat.StatType statType, boolean notifyPlayer) {
-        List<ItemStack> effectiveItems = InventoryUtils.collectEffectiveItems(player, notifyPlayer);
-        double minBonus = 0;
-        double maxBonus = 0;
-        float minMultiplier = 1;
-        float maxMultiplier = 1;
-        for (ItemStack item : effectiveItems) {
-            CustomItem customItem;
-            ItemStat stat;
-            if (!CustomItem.isCustomItem(item) || (customItem = ItemManager.getCustomItem(item)) == null
-                    || (stat = customItem.getStat(statType)) == null) {
-                continue;
-            }
-
-            int sign = stat.getOperationType() == ItemStat.OperationType.MINUS ? -1 : 1;
-            if (stat.isPercentage()) {
-                minMultiplier += sign * stat.getMinValue() / 100;
-                maxMultiplier += sign * stat.getMaxValue() / 100;
-            } else {
-                minBonus += sign * stat.getMinValue();
-                maxBonus += sign * stat.getMaxValue();
-            }
+    @NotNull
+    public static StatSheet getStats(Player player) {
+        if (InventoryManager.playerIsLoaded(player)) {
+            return InventoryManager.get(player).getStats();
         }
 
-        return new Modifier(minBonus, maxBonus, minMultiplier, maxMultiplier);
+        return computeStats(player);
+    }
+
+    /**
+     * Computes modifiers of all stats from effective items of the player in one pass.
+     * Use {@link #getStats(Player)} to get cached value.
+     */
+    @NotNull
+    public static StatSheet computeStats(Player player) {
+        StatSheet.Builder builder = new StatSheet.Builder();
+        InventoryUtils.forEachEffectiveItem(player, false, builder::add);
+        return builder.build();
     }
 
     @NotNull
@@ -218,7 +211,9 @@ public class ItemManager {
             return;
         }
 
-        InventoryManager.get(player).updateStatsLater();
+        PlayerWrapper playerWrapper = InventoryManager.get(player);
+        playerWrapper.invalidateStats();
+        playerWrapper.updateStatsLater();
     }
 
     @NotNull
@@ -82,6 +82,20 @@ public class Modifier {
         return maxMultiplier;
     }
 
+    /**
+     * Returns mean bonus. It is used where random value can't be applied.
+     */
+    public double getMeanBonus() {
+        return (this.minBonus + this.maxBonus) / 2;
+    }
+
+    /**
+     * Returns mean multiplier. It is used where random value can't be applied.
+     */
+    public double getMeanMultiplier() {
+        return (this.minMultiplier + this.maxMultiplier) / 2;
+    }
+
     public double getBonus() {
         return Utils.round(this.minBonus + (this.maxBonus - this.minBonus) * Math.random(), 1);
     }
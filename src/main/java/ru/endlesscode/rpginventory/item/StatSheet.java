@@ -0,0 +1,100 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.item;
+
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Immutable modifiers of all stats, aggregated from the effective items of a player.
+ */
+public final class StatSheet {
+
+    private static final int STATS_COUNT = ItemStat.StatType.values().length;
+
+    private final Modifier[] modifiers;
+
+    private StatSheet(@NotNull Modifier[] modifiers) {
+        this.modifiers = modifiers;
+    }
+
+    @NotNull
+    public Modifier getModifier(@NotNull ItemStat.StatType statType) {
+        return this.modifiers[statType.ordinal()];
+    }
+
+    /**
+     * Folds stats of items into arrays indexed by {@link ItemStat.StatType#ordinal()}.
+     */
+    static class Builder {
+        private final double[] minBonus = new double[STATS_COUNT];
+        private final double[] maxBonus = new double[STATS_COUNT];
+        private final double[] minMultiplier = new double[STATS_COUNT];
+        private final double[] maxMultiplier = new double[STATS_COUNT];
+
+        Builder() {
+            Arrays.fill(this.minMultiplier, 1);
+            Arrays.fill(this.maxMultiplier, 1);
+        }
+
+        @NotNull
+        Builder add(@Nullable ItemStack item) {
+            CustomItem customItem;
+            if (CustomItem.isCustomItem(item) && (customItem = ItemManager.getCustomItem(item)) != null) {
+                this.add(customItem);
+            }
+
+            return this;
+        }
+
+        @NotNull
+        Builder add(@NotNull CustomItem customItem) {
+            for (ItemStat stat : customItem.getIndexedStats()) {
+                if (stat == null) {
+                    continue;
+                }
+
+                int index = stat.getType().ordinal();
+                int sign = stat.getOperationType() == ItemStat.OperationType.MINUS ? -1 : 1;
+                if (stat.isPercentage()) {
+                    this.minMultiplier[index] += sign * stat.getMinValue() / 100;
+                    this.maxMultiplier[index] += sign * stat.getMaxValue() / 100;
+                } else {
+                    this.minBonus[index] += sign * stat.getMinValue();
+                    this.maxBonus[index] += sign * stat.getMaxValue();
+                }
+            }
+
+            return this;
+        }
+
+        @NotNull
+        StatSheet build() {
+            Modifier[] modifiers = new Modifier[STATS_COUNT];
+            for (int i = 0; i < STATS_COUNT; i++) {
+                modifiers[i] = new Modifier(this.minBonus[i], this.maxBonus[i], this.minMultiplier[i], this.maxMultiplier[i]);
+            }
+
+            return new StatSheet(modifiers);
+        }
+    }
+}
@@ -39,6 +39,13 @@ public class Config {
 
     public static TexturesType texturesType = TexturesType.DAMAGE;
 
+    public static StorageFormat storageFormat = StorageFormat.YAML;
+    public static StorageLayout storageLayout = StorageLayout.FLAT;
+    public static StorageType storageType = StorageType.FILE;
+
+    public static boolean statsAsAttributes = false;
+    public static int statsUpdatesPerTick = 50;
+
     private static final FileConfiguration config = new YamlConfiguration();
     private static Path configFile;
 
@@ -96,5 +103,11 @@ public class Config {
         armorSlotsAction = VanillaSlotAction.parseString(config.getString("armor-slots-action"));
 
         texturesType = TexturesType.parseString(config.getString("textures-type"));
+        storageFormat = StorageFormat.parseString(config.getString("storage.format"));
+        storageLayout = StorageLayout.parseString(config.getString("storage.layout"));
+        storageType = StorageType.parseString(config.getString("storage.type"));
+
+        statsAsAttributes = config.getBoolean("items.stats-as-attributes");
+        statsUpdatesPerTick = Math.max(1, config.getInt("items.stats-updates-per-tick"));
     }
 }
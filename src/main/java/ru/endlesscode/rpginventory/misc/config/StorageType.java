@@ -0,0 +1,43 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2020 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.config;
+
+import ru.endlesscode.rpginventory.utils.SafeEnums;
+
+public enum StorageType {
+
+    /**
+     * Every inventory and backpack is stored in its own file.
+     */
+    FILE,
+
+    /**
+     * All inventories and backpacks are stored in embedded SQLite database.
+     */
+    SQLITE,
+
+    /**
+     * Data is stored in memory and lost on server stop. Only for testing.
+     */
+    MEMORY;
+
+    static StorageType parseString(String stringValue) {
+        return SafeEnums.valueOfOrDefault(StorageType.class, stringValue, FILE, "storage type");
+    }
+}
@@ -0,0 +1,394 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.inventory.backpack.Backpack;
+import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
+import ru.endlesscode.rpginventory.inventory.backpack.BackpackType;
+import ru.endlesscode.rpginventory.utils.ItemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary format for inventories and backpacks.
+ * <p>
+ * Header: magic number, format version, type of data and data version of the server.
+ * Inventory: bought slots count and list of slots. Every slot is stored as name and
+ * length-prefixed record, so reader can skip slot without parsing of its items.
+ * Backpack: last use time, id, type and contents.
+ * Item: presence flag and map returned by {@link ItemStack#serialize()}, written as typed values.
+ * It is the same map that is written to YAML, so it contains data version and the item is upgraded
+ * by the server on loading the same way as items in YAML. Nested serializable objects, like item meta,
+ * are written with their alias and restored by {@link ConfigurationSerialization}.
+ */
+class BinarySerialization {
+
+    static final int MAGIC = 0x52504749; // "RPGI"
+    /**
+     * Version 1 stored raw NBT of items, which can't be upgraded.
+     * Version 2 stored every item with Java serialization. Both were never released.
+     */
+    private static final byte VERSION = 3;
+
+    private static final byte TYPE_INVENTORY = 1;
+    private static final byte TYPE_BACKPACK = 2;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_FLOAT = 5;
+    private static final byte VALUE_BOOLEAN = 6;
+    private static final byte VALUE_SHORT = 7;
+    private static final byte VALUE_BYTE = 8;
+    private static final byte VALUE_LIST = 9;
+    private static final byte VALUE_MAP = 10;
+    private static final byte VALUE_SERIALIZABLE = 11;
+
+    private BinarySerialization() {
+    }
+
+    static boolean isSupported(@NotNull Object data) {
+        return data instanceof InventorySnapshot || data instanceof Backpack;
+    }
+
+    static void save(@NotNull Object data, @NotNull OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+
+        if (data instanceof InventorySnapshot) {
+            output.writeByte(TYPE_INVENTORY);
+            writeDataVersion(output);
+            writeInventory(output, (InventorySnapshot) data);
+        } else if (data instanceof Backpack) {
+            output.writeByte(TYPE_BACKPACK);
+            writeDataVersion(output);
+            writeBackpack(output, (Backpack) data);
+        } else {
+            throw new IllegalArgumentException("Binary format is not supported for " + data.getClass().getSimpleName());
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Loads data from the stream.
+     *
+     * @return Loaded data, or {@code null} if the data is not relevant anymore
+     */
+    @Nullable
+    static Object load(@NotNull InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Data is not in binary format");
+        }
+
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of binary format: " + version);
+        }
+
+        byte type = input.readByte();
+        input.readInt(); // Data version of the server, items contain their own data version
+
+        switch (type) {
+            case TYPE_INVENTORY:
+                return readInventory(input);
+            case TYPE_BACKPACK:
+                return readBackpack(input);
+            default:
+                throw new IOException("Unknown type of binary data: " + type);
+        }
+    }
+
+    /**
+     * Reads only last use time of the backpack from the stream.
+     *
+     * @return Last use time, or {@code 0} if the data is not a backpack
+     */
+    static long readBackpackLastUse(@NotNull InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Data is not in binary format");
+        }
+
+        input.readByte(); // Format version
+        byte type = input.readByte();
+        input.readInt(); // Data version
+        return type == TYPE_BACKPACK ? input.readLong() : 0;
+    }
+
+    private static void writeInventory(@NotNull DataOutputStream output, @NotNull InventorySnapshot snapshot)
+            throws IOException {
+        output.writeInt(snapshot.getBoughtSlots());
+
+        Map<String, SlotSnapshot> slots = snapshot.getSlots();
+        output.writeShort(slots.size());
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        for (Map.Entry<String, SlotSnapshot> entry : slots.entrySet()) {
+            SlotSnapshot slot = entry.getValue();
+
+            recordBytes.reset();
+            record.writeUTF(slot.getType());
+            record.writeBoolean(slot.isBought());
+            record.writeShort(slot.getItems().size());
+            for (ItemStack item : slot.getItems()) {
+                writeItem(record, item);
+            }
+            record.flush();
+
+            output.writeUTF(entry.getKey());
+            output.writeInt(recordBytes.size());
+            recordBytes.writeTo(output);
+        }
+    }
+
+    @NotNull
+    private static InventorySnapshot readInventory(@NotNull DataInputStream input) throws IOException {
+        int boughtSlots = input.readInt();
+
+        int slotsCount = input.readUnsignedShort();
+        Map<String, SlotSnapshot> slots = new LinkedHashMap<>(slotsCount * 2);
+        for (int i = 0; i < slotsCount; i++) {
+            String name = input.readUTF();
+            byte[] recordBytes = new byte[input.readInt()];
+            input.readFully(recordBytes);
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBytes));
+            String type = record.readUTF();
+            boolean bought = record.readBoolean();
+            int itemsCount = record.readUnsignedShort();
+            List<ItemStack> items = new ArrayList<>(itemsCount);
+            for (int j = 0; j < itemsCount; j++) {
+                items.add(readItem(record));
+            }
+
+            slots.put(name, new SlotSnapshot(name, type, bought, items));
+        }
+
+        return new InventorySnapshot(slots, boughtSlots);
+    }
+
+    private static void writeBackpack(@NotNull DataOutputStream output, @NotNull Backpack backpack) throws IOException {
+        // Last use is the first field to allow reading of it without reading of contents
+        output.writeLong(backpack.getLastUse());
+        output.writeUTF(backpack.getUniqueId().toString());
+        output.writeUTF(backpack.getType().getId());
+
+        ItemStack[] contents = backpack.getContents();
+        output.writeShort(contents.length);
+        for (ItemStack item : contents) {
+            writeItem(output, item);
+        }
+    }
+
+    @Nullable
+    private static Backpack readBackpack(@NotNull DataInputStream input) throws IOException {
+        long lastUse = input.readLong();
+        UUID id = UUID.fromString(input.readUTF());
+        BackpackType type = BackpackManager.getBackpackType(input.readUTF());
+        if (type == null) {
+            return null;
+        }
+
+        ItemStack[] contents = new ItemStack[input.readUnsignedShort()];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = readItem(input);
+        }
+
+        Backpack backpack = new Backpack(type, id);
+        backpack.setContents(contents);
+        backpack.setLastUse(lastUse);
+        return backpack;
+    }
+
+    static void writeItem(@NotNull DataOutput output, @Nullable ItemStack item) throws IOException {
+        if (ItemUtils.isEmpty(item)) {
+            output.writeBoolean(false);
+            return;
+        }
+
+        output.writeBoolean(true);
+        writeValue(output, item);
+    }
+
+    /**
+     * Reads item written by {@link #writeItem(DataOutput, ItemStack)}.
+     *
+     * @return Read item, or {@code null} if empty item was written
+     * @throws IOException if the item can't be restored, for example if its material is unknown
+     */
+    @Nullable
+    static ItemStack readItem(@NotNull DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        Object item;
+        try {
+            item = readValue(input);
+        } catch (RuntimeException e) {
+            throw new IOException("Item can't be deserialized", e);
+        }
+
+        // Bukkit returns null instead of throwing if the item can't be deserialized
+        if (!(item instanceof ItemStack) || ItemUtils.isEmpty((ItemStack) item)) {
+            throw new IOException("Item can't be deserialized, its material may be unknown");
+        }
+
+        return (ItemStack) item;
+    }
+
+    private static void writeValue(@NotNull DataOutput output, @Nullable Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(VALUE_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(VALUE_INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            output.writeByte(VALUE_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            output.writeByte(VALUE_FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(VALUE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            output.writeByte(VALUE_SHORT);
+            output.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(VALUE_BYTE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            output.writeByte(VALUE_LIST);
+            output.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map) {
+            output.writeByte(VALUE_MAP);
+            writeMap(output, (Map<?, ?>) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            output.writeByte(VALUE_SERIALIZABLE);
+            writeString(output, ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeMap(output, serializable.serialize());
+        } else {
+            throw new IOException("Value of type " + value.getClass().getName() + " can't be written");
+        }
+    }
+
+    @Nullable
+    private static Object readValue(@NotNull DataInput input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(input);
+            case VALUE_INT:
+                return input.readInt();
+            case VALUE_LONG:
+                return input.readLong();
+            case VALUE_DOUBLE:
+                return input.readDouble();
+            case VALUE_FLOAT:
+                return input.readFloat();
+            case VALUE_BOOLEAN:
+                return input.readBoolean();
+            case VALUE_SHORT:
+                return input.readShort();
+            case VALUE_BYTE:
+                return input.readByte();
+            case VALUE_LIST:
+                int size = input.readInt();
+                List<Object> list = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            case VALUE_MAP:
+                return readMap(input, new LinkedHashMap<>());
+            case VALUE_SERIALIZABLE:
+                // The same map as YAML passes to deserialization
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, readString(input));
+                return ConfigurationSerialization.deserializeObject(readMap(input, map));
+            default:
+                throw new IOException("Unknown type of value: " + type);
+        }
+    }
+
+    private static void writeMap(@NotNull DataOutput output, @NotNull Map<?, ?> map) throws IOException {
+        output.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(output, String.valueOf(entry.getKey()));
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    @NotNull
+    private static Map<String, Object> readMap(@NotNull DataInput input, @NotNull Map<String, Object> map)
+            throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString(input);
+            map.put(key, readValue(input));
+        }
+
+        return map;
+    }
+
+    /**
+     * Unlike {@link DataOutput#writeUTF(String)}, length of the string is not limited to 64 KB,
+     * so long lore or book pages can be written.
+     */
+    private static void writeString(@NotNull DataOutput output, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NotNull
+    private static String readString(@NotNull DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeDataVersion(@NotNull DataOutputStream output) throws IOException {
+        output.writeInt(Bukkit.getUnsafe().getDataVersion());
+    }
+}
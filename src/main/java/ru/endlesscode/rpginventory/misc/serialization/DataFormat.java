@@ -0,0 +1,85 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Format of stored inventories and backpacks, detected by the first decompressed bytes.
+ */
+enum DataFormat {
+
+    /**
+     * Compact binary format, starts with magic number.
+     */
+    BINARY,
+
+    /**
+     * YAML with {@code data:} root.
+     */
+    YAML,
+
+    /**
+     * NBT compound, was used in legacy versions.
+     */
+    LEGACY,
+
+    /**
+     * Format is not detected. It can be YAML that doesn't start with the root, so it is loaded as YAML.
+     */
+    UNKNOWN;
+
+    private static final byte[] YAML_ROOT = (Serialization.ROOT_TAG + ":").getBytes(StandardCharsets.UTF_8);
+    private static final int HEADER_SIZE = Math.max(Integer.BYTES, YAML_ROOT.length);
+
+    /**
+     * Peeks the first bytes of the stream to detect format of the data. Stream position is not changed.
+     */
+    @NotNull
+    static DataFormat detect(@NotNull BufferedInputStream stream) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length = 0;
+
+        stream.mark(HEADER_SIZE);
+        try {
+            int read;
+            while (length < HEADER_SIZE && (read = stream.read(header, length, HEADER_SIZE - length)) != -1) {
+                length += read;
+            }
+        } finally {
+            stream.reset();
+        }
+
+        if (length == 0) {
+            return UNKNOWN;
+        } else if (header[0] == LegacySerialization.NBT_COMPOUND) {
+            return LEGACY;
+        } else if (length >= Integer.BYTES && readInt(header) == BinarySerialization.MAGIC) {
+            return BINARY;
+        } else if (startsWith(header, length, YAML_ROOT)) {
+            return YAML;
+        }
+
+        return UNKNOWN;
+    }
+
+    private static int readInt(@NotNull byte[] bytes) {
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+    }
+
+    private static boolean startsWith(@NotNull byte[] bytes, int length, @NotNull byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores every inventory and backpack in its own file. Locations of files are resolved by {@link StoragePaths}.
+ */
+class FileStorageBackend implements StorageBackend {
+
+    @Nullable
+    @Override
+    public byte[] load(@NotNull Kind kind, @NotNull UUID id) throws IOException {
+        Path file = find(kind, id);
+        return Files.exists(file) ? Files.readAllBytes(file) : null;
+    }
+
+    @Override
+    public void save(@NotNull Kind kind, @NotNull UUID id, @NotNull byte[] data) throws IOException {
+        Path file = getFile(kind, id);
+        Files.createDirectories(file.getParent());
+
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), null);
+        Files.write(tempFile, data);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete(@NotNull Kind kind, @NotNull UUID id) throws IOException {
+        Files.deleteIfExists(find(kind, id));
+    }
+
+    @Override
+    public boolean exists(@NotNull Kind kind, @NotNull UUID id) {
+        return Files.exists(find(kind, id));
+    }
+
+    @NotNull
+    @Override
+    public List<UUID> list(@NotNull Kind kind) throws IOException {
+        Path folder = getFolder(kind);
+        if (Files.notExists(folder)) {
+            return List.of();
+        }
+
+        String extension = getExtension(kind);
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.map(file -> StoragePaths.parseId(file, extension))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public void backupBroken(@NotNull Kind kind, @NotNull UUID id) {
+        FileUtils.resolveException(find(kind, id));
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+
+    @NotNull
+    private static Path find(@NotNull Kind kind, @NotNull UUID id) {
+        return kind == Kind.INVENTORY ? StoragePaths.findInventoryFile(id) : StoragePaths.findBackpackFile(id);
+    }
+
+    @NotNull
+    private static Path getFile(@NotNull Kind kind, @NotNull UUID id) {
+        return kind == Kind.INVENTORY ? StoragePaths.getInventoryFile(id) : StoragePaths.getBackpackFile(id);
+    }
+
+    @NotNull
+    private static Path getFolder(@NotNull Kind kind) {
+        return kind == Kind.INVENTORY ? StoragePaths.getInventoriesFolder() : StoragePaths.getBackpacksFolder();
+    }
+
+    @NotNull
+    private static String getExtension(@NotNull Kind kind) {
+        return kind == Kind.INVENTORY ? StoragePaths.INVENTORY_EXTENSION : StoragePaths.BACKPACK_EXTENSION;
+    }
+}
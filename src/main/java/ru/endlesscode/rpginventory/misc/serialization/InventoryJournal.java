@@ -0,0 +1,374 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of changes of RPG inventory slots made between saves of inventories.
+ * <p>
+ * Every record contains player's UUID, slot id and the item. When snapshot of the inventory
+ * is saved, a checkpoint record is written and previous records of the player are not needed anymore.
+ * Records are written by a background thread and synced to disk once per batch.
+ * On start, records written after the last checkpoint are recovered and applied when the inventory is loaded.
+ */
+public final class InventoryJournal {
+
+    private static final byte RECORD_ITEM = 1;
+    private static final byte RECORD_CHECKPOINT = 2;
+
+    private static final long BATCH_DELAY_MILLIS = 20;
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private static final Record COMPACT = new Record(null, -1, null);
+    private static final Record STOP = new Record(null, -1, null);
+
+    /**
+     * Changes recovered on start, waiting for loading of the inventories.
+     */
+    private static final Map<UUID, Map<Integer, byte[]>> RECOVERED = new ConcurrentHashMap<>();
+
+    private static final BlockingQueue<Record> QUEUE = new LinkedBlockingQueue<>();
+
+    /**
+     * Changes not covered by a saved snapshot. Accessed only from the writer thread.
+     */
+    private static final Map<UUID, Map<Integer, byte[]>> LIVE = new HashMap<>();
+
+    private static Path file;
+    private static DataOutputStream output;
+    private static FileOutputStream fileOutput;
+    @Nullable
+    private static Thread writer;
+
+    private InventoryJournal() {
+        // static class
+    }
+
+    public static void init(@NotNull Path journalFile) {
+        if (writer != null) {
+            return;
+        }
+
+        file = journalFile;
+        try {
+            recover();
+            LIVE.clear();
+            RECOVERED.forEach((uuid, slots) -> LIVE.put(uuid, new HashMap<>(slots)));
+            compact();
+        } catch (IOException e) {
+            Log.w(e, "Error on opening of the inventories journal, it will not be used");
+            return;
+        }
+
+        if (!RECOVERED.isEmpty()) {
+            Log.i("Changes of {0} inventories were recovered from the journal", RECOVERED.size());
+        }
+
+        writer = new Thread(InventoryJournal::writeLoop, "RPGInventory Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends change of the slot to the journal.
+     */
+    public static void append(@NotNull UUID uuid, int slotId, @Nullable ItemStack item) {
+        if (writer != null) {
+            QUEUE.add(new Record(uuid, slotId, item == null ? null : item.clone()));
+        }
+    }
+
+    /**
+     * Marks that snapshot of the inventory was submitted for saving.
+     * Previous changes of the inventory will be dropped after the snapshot is written.
+     */
+    public static void checkpoint(@NotNull UUID uuid) {
+        if (writer != null) {
+            QUEUE.add(new Record(uuid, -1, null));
+        }
+    }
+
+    /**
+     * Rewrites the journal, leaving only changes not covered by saved snapshots.
+     */
+    public static void compactLater() {
+        if (writer != null) {
+            QUEUE.add(COMPACT);
+        }
+    }
+
+    /**
+     * Takes changes of the inventory recovered from the journal.
+     *
+     * @return Items by slot ids, empty if there are no recovered changes
+     */
+    @NotNull
+    public static Map<Integer, ItemStack> takeRecovered(@NotNull UUID uuid) {
+        Map<Integer, byte[]> slots = RECOVERED.remove(uuid);
+        if (slots == null) {
+            return Map.of();
+        }
+
+        Map<Integer, ItemStack> items = new LinkedHashMap<>();
+        for (Map.Entry<Integer, byte[]> entry : slots.entrySet()) {
+            try {
+                items.put(entry.getKey(), decodeItem(entry.getValue()));
+            } catch (IOException | RuntimeException e) {
+                Log.w(e, "Error on recovering of slot {0} from the journal", entry.getKey());
+            }
+        }
+
+        return items;
+    }
+
+    public static void shutdown() {
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+
+        QUEUE.add(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    private static void writeLoop() {
+        List<Record> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(QUEUE.take());
+                Thread.sleep(BATCH_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            QUEUE.drainTo(batch);
+            running &= !batch.contains(STOP);
+            try {
+                writeBatch(batch);
+            } catch (IOException | RuntimeException e) {
+                Log.w(e, "Error on writing of the inventories journal");
+            }
+            batch.clear();
+        }
+
+        closeOutput();
+    }
+
+    private static void writeBatch(@NotNull List<Record> batch) throws IOException {
+        if (output == null) {
+            compact();
+        }
+        Set<UUID> notSaved = awaitSnapshots(batch);
+
+        boolean shouldCompact = false;
+        for (Record record : batch) {
+            if (record == STOP) {
+                continue;
+            }
+            if (record == COMPACT) {
+                shouldCompact = true;
+                continue;
+            }
+
+            if (record.isCheckpoint()) {
+                if (notSaved.contains(record.uuid)) {
+                    // Changes are kept in the journal, they will be restored on the next load
+                    Log.w("Inventory of {0} is not saved, checkpoint is skipped", record.uuid.toString());
+                    continue;
+                }
+                LIVE.remove(record.uuid);
+                writeCheckpoint(output, record.uuid);
+            } else {
+                byte[] item = encodeItem(record.item);
+                LIVE.computeIfAbsent(record.uuid, uuid -> new HashMap<>()).put(record.slotId, item);
+                writeItem(output, record.uuid, record.slotId, item);
+            }
+        }
+
+        output.flush();
+        fileOutput.getChannel().force(false);
+
+        long size = fileOutput.getChannel().size();
+        if (shouldCompact || LIVE.isEmpty() && size > 0 || size > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Checkpoint can be written only when the snapshot is persisted,
+     * otherwise changes will be lost if the server crashes before the snapshot is written.
+     *
+     * @return Players whose snapshots were not saved
+     */
+    @NotNull
+    private static Set<UUID> awaitSnapshots(@NotNull List<Record> batch) {
+        Set<UUID> checkpoints = new HashSet<>();
+        for (Record record : batch) {
+            if (record.isCheckpoint()) {
+                checkpoints.add(record.uuid);
+            }
+        }
+
+        Set<UUID> notSaved = new HashSet<>();
+        if (!checkpoints.isEmpty()) {
+            for (UUID uuid : checkpoints) {
+                if (!SaveQueue.await(StorageBackend.Kind.INVENTORY, uuid)) {
+                    notSaved.add(uuid);
+                }
+            }
+
+            try {
+                Serialization.getStorage().flush();
+            } catch (IOException e) {
+                // Items are still written to the journal, only checkpoints are skipped
+                Log.w(e, "Error on flushing of the storage");
+                notSaved.addAll(checkpoints);
+            }
+        }
+
+        return notSaved;
+    }
+
+    private static void compact() throws IOException {
+        closeOutput();
+
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), null);
+        try (FileOutputStream tempOutput = new FileOutputStream(tempFile.toFile())) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tempOutput));
+            for (Map.Entry<UUID, Map<Integer, byte[]>> entry : LIVE.entrySet()) {
+                for (Map.Entry<Integer, byte[]> slot : entry.getValue().entrySet()) {
+                    writeItem(data, entry.getKey(), slot.getKey(), slot.getValue());
+                }
+            }
+            data.flush();
+            tempOutput.getChannel().force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        fileOutput = new FileOutputStream(file.toFile(), true);
+        output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+    }
+
+    private static void recover() throws IOException {
+        RECOVERED.clear();
+        if (Files.notExists(file)) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte type = input.readByte();
+                UUID uuid = new UUID(input.readLong(), input.readLong());
+                if (type == RECORD_CHECKPOINT) {
+                    RECOVERED.remove(uuid);
+                } else if (type == RECORD_ITEM) {
+                    int slotId = input.readInt();
+                    byte[] item = new byte[input.readInt()];
+                    input.readFully(item);
+                    RECOVERED.computeIfAbsent(uuid, key -> new HashMap<>()).put(slotId, item);
+                } else {
+                    throw new IOException("Unknown type of journal record: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the journal, last record can be incomplete if the server crashed while writing it
+        }
+    }
+
+    private static void writeItem(@NotNull DataOutputStream output, @NotNull UUID uuid, int slotId,
+                                  @NotNull byte[] item) throws IOException {
+        output.writeByte(RECORD_ITEM);
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+        output.writeInt(slotId);
+        output.writeInt(item.length);
+        output.write(item);
+    }
+
+    private static void writeCheckpoint(@NotNull DataOutputStream output, @NotNull UUID uuid) throws IOException {
+        output.writeByte(RECORD_CHECKPOINT);
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    @NotNull
+    private static byte[] encodeItem(@Nullable ItemStack item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        BinarySerialization.writeItem(data, item);
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    private static ItemStack decodeItem(@NotNull byte[] item) throws IOException {
+        return BinarySerialization.readItem(new DataInputStream(new ByteArrayInputStream(item)));
+    }
+
+    private static void closeOutput() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        } catch (IOException e) {
+            Log.w(e, "Error on closing of the inventories journal");
+        }
+        output = null;
+        fileOutput = null;
+    }
+
+    private static class Record {
+        @Nullable
+        private final UUID uuid;
+        private final int slotId;
+        @Nullable
+        private final ItemStack item;
+
+        private Record(@Nullable UUID uuid, int slotId, @Nullable ItemStack item) {
+            this.uuid = uuid;
+            this.slotId = slotId;
+            this.item = item;
+        }
+
+        private boolean isCheckpoint() {
+            return this.uuid != null && this.slotId < 0;
+        }
+    }
+}
@@ -22,7 +22,7 @@ public class InventorySnapshot implements ConfigurationSerializable {
     private final int boughtSlots;
 
 
-    private InventorySnapshot(@NotNull Map<String, SlotSnapshot> slots, int boughtSlots) {
+    InventorySnapshot(@NotNull Map<String, SlotSnapshot> slots, int boughtSlots) {
         this.slots = slots;
         this.boughtSlots = boughtSlots;
     }
@@ -58,6 +58,15 @@ public class InventorySnapshot implements ConfigurationSerializable {
         return serializedInventory;
     }
 
+    @NotNull
+    Map<String, SlotSnapshot> getSlots() {
+        return slots;
+    }
+
+    int getBoughtSlots() {
+        return boughtSlots;
+    }
+
     public PlayerWrapper restore(@NotNull Player player) {
         final PlayerWrapper playerWrapper = new PlayerWrapper(player);
         playerWrapper.setBuyedSlots(boughtSlots);
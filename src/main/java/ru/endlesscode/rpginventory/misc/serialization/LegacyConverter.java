@@ -0,0 +1,198 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts inventories and backpacks saved by legacy versions of the plugin to the current format.
+ * <p>
+ * All stored data is checked in parallel. Progress is logged periodically,
+ * and the report with results and errors is written when the conversion is finished.
+ */
+public final class LegacyConverter {
+
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private final Set<UUID> skipped;
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong lastProgressAt = new AtomicLong(System.nanoTime());
+    private int total;
+
+    private LegacyConverter(@NotNull Set<UUID> skipped) {
+        this.skipped = skipped;
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    /**
+     * Converts all legacy data and writes the report. Blocks until the conversion is finished.
+     *
+     * @param skipped Ids of loaded inventories and backpacks, they will be saved in the current format anyway
+     * @param report  File to write the report to
+     * @return Short summary of the conversion, or {@code null} if the conversion is already running
+     */
+    @Nullable
+    public static String convertAll(@NotNull Set<UUID> skipped, @NotNull Path report) {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            LegacyConverter converter = new LegacyConverter(skipped);
+            converter.run();
+            converter.writeReport(report);
+            return converter.getSummary();
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+
+    private void run() {
+        long startedAt = System.nanoTime();
+        Log.i("Conversion of legacy inventories and backpacks started");
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<StorageKey> keys = new ArrayList<>();
+            for (StorageBackend.Kind kind : StorageBackend.Kind.values()) {
+                for (UUID id : Serialization.getStorage().list(kind)) {
+                    keys.add(new StorageKey(kind, id));
+                }
+            }
+            this.total = keys.size();
+
+            pool.submit(() -> keys.parallelStream().forEach(this::convert)).get();
+        } catch (IOException | ExecutionException e) {
+            this.errors.add("Conversion was interrupted: " + e);
+            Log.w(e, "Error on conversion of legacy data");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+
+        Log.i("Conversion of legacy inventories and backpacks finished in {0} s. {1}",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt), this.getSummary());
+    }
+
+    private void convert(@NotNull StorageKey key) {
+        StorageBackend storage = Serialization.getStorage();
+        try {
+            if (this.skipped.contains(key.getId())) {
+                return;
+            }
+
+            byte[] data = storage.load(key.getKind(), key.getId());
+            if (data == null || !Serialization.isLegacy(data)) {
+                return;
+            }
+
+            byte[] convertedData = Serialization.convertLegacy(key.getKind(), key.getId(), data);
+            boolean replaced = SaveQueue.execute(key.getKind(), key.getId(),
+                    () -> replaceIfUnchanged(key, data, convertedData));
+
+            if (!replaced) {
+                return;
+            }
+
+            if (convertedData == null) {
+                this.deleted.incrementAndGet();
+            } else {
+                this.converted.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.errors.add(key + ": " + e);
+        } finally {
+            this.checked.incrementAndGet();
+            this.logProgress();
+        }
+    }
+
+    /**
+     * Replaces legacy data with converted data. Should be called in the save queue stripe of the data,
+     * so the data can't be saved in the current format between the check and the replacement.
+     *
+     * @param convertedData Converted data, or {@code null} if the data should be deleted
+     * @return {@code true} if the data was replaced, {@code false} if it was saved in the current format
+     * while it was converted
+     */
+    private static boolean replaceIfUnchanged(@NotNull StorageKey key, @NotNull byte[] data,
+                                              @Nullable byte[] convertedData) throws IOException {
+        StorageBackend storage = Serialization.getStorage();
+        if (!Arrays.equals(data, storage.load(key.getKind(), key.getId()))) {
+            return false;
+        }
+
+        if (convertedData == null) {
+            storage.delete(key.getKind(), key.getId());
+        } else {
+            storage.save(key.getKind(), key.getId(), convertedData);
+        }
+
+        return true;
+    }
+
+    private void logProgress() {
+        long now = System.nanoTime();
+        long last = this.lastProgressAt.get();
+        if (now - last > PROGRESS_INTERVAL && this.lastProgressAt.compareAndSet(last, now)) {
+            Log.i("Converting legacy data: {0}/{1} checked, {2} converted, {3} error(s)",
+                    this.checked.get(), this.total, this.converted.get(), this.errors.size());
+        }
+    }
+
+    private void writeReport(@NotNull Path report) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Conversion of legacy data, " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        lines.add("Total: " + this.total);
+        lines.add("Loaded, skipped: " + this.skipped.size());
+        lines.add("Checked: " + this.checked.get());
+        lines.add("Converted: " + this.converted.get());
+        lines.add("Deleted as not relevant: " + this.deleted.get());
+        lines.add("Errors: " + this.errors.size());
+        synchronized (this.errors) {
+            for (String error : this.errors) {
+                lines.add("  " + error);
+            }
+        }
+
+        try {
+            Files.write(report, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.w(e, "Error on writing of the conversion report");
+        }
+    }
+
+    @NotNull
+    private String getSummary() {
+        return String.format("%d of %d checked, %d converted, %d deleted, %d error(s)",
+                this.checked.get(), this.total, this.converted.get(), this.deleted.get(), this.errors.size());
+    }
+}
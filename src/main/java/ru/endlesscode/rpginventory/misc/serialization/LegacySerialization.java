@@ -15,18 +15,17 @@ import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackType;
 import ru.endlesscode.rpginventory.inventory.slot.Slot;
 import ru.endlesscode.rpginventory.inventory.slot.SlotManager;
-import ru.endlesscode.rpginventory.utils.FileUtils;
 import ru.endlesscode.rpginventory.utils.ItemUtils;
 import ru.endlesscode.rpginventory.utils.NbtFactoryMirror;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Legacy serialization for back compatibility.
@@ -34,12 +33,14 @@ import java.util.zip.GZIPInputStream;
 @Deprecated
 class LegacySerialization {
 
+    static final int NBT_COMPOUND = 0x0A;
+
     @NotNull
-    static PlayerWrapper loadPlayer(Player player, @NotNull Path file) throws IOException {
+    static PlayerWrapper loadPlayer(Player player, @NotNull InputStream stream) throws IOException {
         PlayerWrapper playerWrapper = new PlayerWrapper(player);
         Inventory inventory = playerWrapper.getInventory();
 
-        try (DataInputStream dataInput = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+        try (DataInputStream dataInput = new DataInputStream(stream)) {
             NbtCompound playerNbt = NbtBinarySerializer.DEFAULT.deserializeCompound(dataInput);
 
             playerWrapper.setBuyedSlots(playerNbt.getInteger("buyed-slots"));
@@ -77,10 +78,61 @@ class LegacySerialization {
         return playerWrapper;
     }
 
+    /**
+     * Loads inventory without player, to convert it to the current format.
+     */
+    @NotNull
+    static InventorySnapshot loadInventorySnapshot(@NotNull InputStream stream) throws IOException {
+        Map<String, SlotSnapshot> slots = new LinkedHashMap<>();
+        int boughtSlots;
+
+        try (DataInputStream dataInput = new DataInputStream(stream)) {
+            NbtCompound playerNbt = NbtBinarySerializer.DEFAULT.deserializeCompound(dataInput);
+
+            boughtSlots = playerNbt.getInteger("buyed-slots");
+            playerNbt.remove("buyed-slots");
+
+            NbtCompound itemsNbt = playerNbt.containsKey("slots") ? playerNbt.getCompound("slots") : playerNbt;
+
+            for (Slot slot : SlotManager.instance().getSlots()) {
+                if (slot.getSlotType() == Slot.SlotType.ARMOR || !itemsNbt.containsKey(slot.getName())) {
+                    continue;
+                }
+
+                NbtCompound slotNbt = itemsNbt.getCompound(slot.getName());
+                if (slot.getSlotType() != Slot.SlotType.valueOf(slotNbt.getString("type"))) {
+                    continue;
+                }
+
+                NbtCompound itemListNbt = slotNbt.getCompound("items");
+                List<ItemStack> itemList = new ArrayList<>();
+                for (String key : itemListNbt.getKeys()) {
+                    ItemStack item = nbtToItemStack(itemListNbt.getCompound(key));
+                    if (ItemUtils.isNotEmpty(item) && !slot.isCup(item)) {
+                        itemList.add(item);
+                    }
+                }
+
+                SlotSnapshot slotSnapshot = new SlotSnapshot(slot.getName(), slot.getSlotType().name(),
+                        slotNbt.containsKey("buyed"), itemList);
+                if (slotSnapshot.shouldBeSaved()) {
+                    slots.put(slot.getName(), slotSnapshot);
+                }
+            }
+        }
+
+        return new InventorySnapshot(slots, boughtSlots);
+    }
+
+    static long readBackpackLastUse(@NotNull InputStream stream) throws IOException {
+        NbtCompound nbtList = NbtBinarySerializer.DEFAULT.deserializeCompound(new DataInputStream(stream));
+        return nbtList.containsKey("last-use") ? nbtList.getLong("last-use") : 0;
+    }
+
     @Nullable
-    static Backpack loadBackpack(@NotNull Path file) throws IOException {
+    static Backpack loadBackpack(@NotNull UUID uuid, @NotNull InputStream stream) throws IOException {
         Backpack backpack;
-        try (DataInputStream dataInput = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+        try (DataInputStream dataInput = new DataInputStream(stream)) {
             NbtCompound nbtList = NbtBinarySerializer.DEFAULT.deserializeCompound(dataInput);
 
             BackpackType type = BackpackManager.getBackpackType(nbtList.getString("type"));
@@ -89,7 +141,7 @@ class LegacySerialization {
             }
 
             long lastUse = (nbtList.containsKey("last-use")) ? nbtList.getLong("last-use") : System.currentTimeMillis();
-            backpack = new Backpack(type, UUID.fromString(FileUtils.stripExtension(file.getFileName().toString())));
+            backpack = new Backpack(type, uuid);
             backpack.setLastUse(lastUse);
             NbtCompound itemList = nbtList.getCompound("contents");
             ItemStack[] contents = new ItemStack[type.getSize()];
@@ -0,0 +1,71 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps all data in memory. Data is lost when the storage is closed, so it is useful only for testing.
+ */
+public class MemoryStorageBackend implements StorageBackend {
+
+    private final Map<Kind, Map<UUID, byte[]>> storage = new EnumMap<>(Kind.class);
+    private final Map<Kind, Map<UUID, byte[]>> broken = new EnumMap<>(Kind.class);
+
+    public MemoryStorageBackend() {
+        for (Kind kind : Kind.values()) {
+            storage.put(kind, new ConcurrentHashMap<>());
+            broken.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] load(@NotNull Kind kind, @NotNull UUID id) {
+        byte[] data = storage.get(kind).get(id);
+        return data == null ? null : data.clone();
+    }
+
+    @Override
+    public void save(@NotNull Kind kind, @NotNull UUID id, @NotNull byte[] data) {
+        storage.get(kind).put(id, data.clone());
+    }
+
+    @Override
+    public void delete(@NotNull Kind kind, @NotNull UUID id) {
+        storage.get(kind).remove(id);
+    }
+
+    @Override
+    public boolean exists(@NotNull Kind kind, @NotNull UUID id) {
+        return storage.get(kind).containsKey(id);
+    }
+
+    @NotNull
+    @Override
+    public List<UUID> list(@NotNull Kind kind) {
+        return new ArrayList<>(storage.get(kind).keySet());
+    }
+
+    @Override
+    public void backupBroken(@NotNull Kind kind, @NotNull UUID id) {
+        byte[] data = storage.get(kind).remove(id);
+        if (data != null) {
+            broken.get(kind).put(id, data);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Kind kind : Kind.values()) {
+            storage.get(kind).clear();
+            broken.get(kind).clear();
+        }
+    }
+}
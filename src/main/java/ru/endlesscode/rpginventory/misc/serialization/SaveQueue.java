@@ -0,0 +1,208 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializes data and writes it to the storage off the main thread.
+ * <p>
+ * Every key is bound to one single-threaded stripe, so writes of the same data are never reordered.
+ * Only the latest data is kept for a key that is already waiting in the queue, so the queue
+ * can't grow larger than the number of distinct keys.
+ */
+public final class SaveQueue {
+
+    private static final long FLUSH_TIMEOUT_SECONDS = 60;
+
+    private static final Map<StorageKey, Object> PENDING = new ConcurrentHashMap<>();
+    private static final Set<StorageKey> WRITING = ConcurrentHashMap.newKeySet();
+    private static final Map<StorageKey, Integer> TASKS = new ConcurrentHashMap<>();
+    private static final Set<StorageKey> FAILED = ConcurrentHashMap.newKeySet();
+
+    private static ExecutorService[] stripes = new ExecutorService[0];
+
+    private SaveQueue() {
+        // static class
+    }
+
+    public static void init(int threads) {
+        if (stripes.length > 0) {
+            return;
+        }
+
+        final AtomicInteger counter = new AtomicInteger();
+        stripes = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RPGInventory Saver #" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Schedules saving of the data to the storage.
+     * Data should be a snapshot that is not modified from the main thread anymore.
+     */
+    public static void submit(@NotNull StorageBackend.Kind kind, @NotNull UUID id, @NotNull Object data) {
+        StorageKey key = new StorageKey(kind, id);
+        if (stripes.length == 0) {
+            write(key, data);
+            return;
+        }
+
+        if (PENDING.put(key, data) == null) {
+            getStripe(key).execute(() -> writePending(key));
+        }
+    }
+
+    /**
+     * Blocks until the queued write of the data (if any) is completed.
+     *
+     * @return {@code true} if the last write of the data succeeded or there were no writes,
+     * {@code false} if it failed or waiting was interrupted
+     */
+    public static boolean await(@NotNull StorageBackend.Kind kind, @NotNull UUID id) {
+        StorageKey key = new StorageKey(kind, id);
+        if (stripes.length > 0 && (PENDING.containsKey(key) || WRITING.contains(key) || TASKS.containsKey(key))) {
+            if (!waitFor(getStripe(key).submit(() -> {
+            }))) {
+                return false;
+            }
+        }
+
+        return !FAILED.contains(key);
+    }
+
+    /**
+     * Runs the task in the stripe of the data and blocks until it is completed.
+     * Use it for any access to the storage that should not be reordered with writes of the same data.
+     * The method should not be called from the task running in the queue.
+     */
+    public static <T> T execute(@NotNull StorageBackend.Kind kind, @NotNull UUID id, @NotNull StorageTask<T> task)
+            throws IOException {
+        StorageKey key = new StorageKey(kind, id);
+        if (stripes.length == 0) {
+            return task.run();
+        }
+
+        TASKS.merge(key, 1, Integer::sum);
+        Future<T> future;
+        try {
+            future = getStripe(key).submit(() -> {
+                try {
+                    return task.run();
+                } finally {
+                    TASKS.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                }
+            });
+        } catch (RuntimeException e) {
+            TASKS.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+            throw e;
+        }
+
+        try {
+            return future.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted on waiting for " + key.toString());
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out on waiting for " + key.toString(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Blocks until all writes queued before the call are completed.
+     */
+    public static void flush() {
+        for (ExecutorService stripe : stripes) {
+            waitFor(stripe.submit(() -> {
+            }));
+        }
+
+        try {
+            Serialization.getStorage().flush();
+        } catch (IOException e) {
+            Log.w(e, "Error on flushing of the storage");
+        }
+    }
+
+    public static void shutdown() {
+        flush();
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        stripes = new ExecutorService[0];
+    }
+
+    private static void writePending(@NotNull StorageKey key) {
+        WRITING.add(key);
+        try {
+            Object data = PENDING.remove(key);
+            if (data != null) {
+                write(key, data);
+            }
+        } finally {
+            WRITING.remove(key);
+        }
+    }
+
+    private static void write(@NotNull StorageKey key, @NotNull Object data) {
+        try {
+            Serialization.save(key, data);
+            FAILED.remove(key);
+        } catch (IOException | RuntimeException e) {
+            FAILED.add(key);
+            Log.w(e, "Error on saving {0}", key.toString());
+        }
+    }
+
+    @NotNull
+    private static ExecutorService getStripe(@NotNull StorageKey key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private static boolean waitFor(@NotNull Future<?> future) {
+        try {
+            future.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(e, "Error on waiting for saving data");
+        }
+
+        return false;
+    }
+
+    /**
+     * Access to the storage, executed by {@link #execute}.
+     */
+    @FunctionalInterface
+    public interface StorageTask<T> {
+        T run() throws IOException;
+    }
+}
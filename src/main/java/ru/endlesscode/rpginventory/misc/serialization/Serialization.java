@@ -7,26 +7,36 @@ import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.yaml.snakeyaml.reader.ReaderException;
 import ru.endlesscode.rpginventory.inventory.PlayerWrapper;
 import ru.endlesscode.rpginventory.inventory.backpack.Backpack;
-import ru.endlesscode.rpginventory.utils.FileUtils;
+import ru.endlesscode.rpginventory.misc.config.Config;
+import ru.endlesscode.rpginventory.misc.config.StorageFormat;
+import ru.endlesscode.rpginventory.misc.config.StorageType;
 import ru.endlesscode.rpginventory.utils.Log;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class Serialization {
 
-    private static final String ROOT_TAG = "data";
+    static final String ROOT_TAG = "data";
+
+    private static final AtomicLongArray LOADED = new AtomicLongArray(DataFormat.values().length);
+
+    private static StorageBackend storage = new FileStorageBackend();
 
     public static void registerTypes() {
         ConfigurationSerialization.registerClass(InventorySnapshot.class);
@@ -34,72 +44,286 @@ public class Serialization {
         ConfigurationSerialization.registerClass(Backpack.class);
     }
 
+    public static void initStorage(@NotNull StorageType type, @NotNull Path dataPath) {
+        switch (type) {
+            case SQLITE:
+                try {
+                    storage = new SqlStorageBackend(dataPath.resolve("storage.db"));
+                } catch (IOException e) {
+                    Log.w(e, "Can''t open database, files will be used to store inventories");
+                    storage = new FileStorageBackend();
+                }
+                break;
+            case MEMORY:
+                Log.w("Inventories are stored in memory and will be lost on server stop!");
+                storage = new MemoryStorageBackend();
+                break;
+            default:
+                storage = new FileStorageBackend();
+        }
+    }
+
+    public static void closeStorage() {
+        try {
+            storage.close();
+        } catch (IOException e) {
+            Log.w(e, "Error on closing of the storage");
+        }
+    }
+
+    @NotNull
+    public static StorageBackend getStorage() {
+        return storage;
+    }
+
+    /**
+     * Loads inventory of the player.
+     *
+     * @return Loaded inventory, or {@code null} if there is no saved inventory or it can't be loaded
+     */
     @Nullable
-    public static PlayerWrapper loadPlayerOrNull(Player player, @NotNull Path file) {
-        PlayerWrapper playerWrapper;
+    public static PlayerWrapper loadPlayerOrNull(Player player, @NotNull UUID uuid) {
         try {
-            playerWrapper = loadPlayer(player, file);
+            byte[] data = storage.load(StorageBackend.Kind.INVENTORY, uuid);
+            return data == null ? null : loadPlayer(player, data);
         } catch (IOException | InvalidConfigurationException e) {
             Log.w(e);
-            FileUtils.resolveException(file);
-            playerWrapper = null;
+            backupBroken(StorageBackend.Kind.INVENTORY, uuid);
+            Log.s("Error on loading {0}''s inventory.", player.getName());
+            Log.s("Will be created new inventory. Old data was backed up.");
+            return null;
         }
-        return playerWrapper;
     }
 
     @NotNull
-    private static PlayerWrapper loadPlayer(Player player, @NotNull Path file)
+    private static PlayerWrapper loadPlayer(Player player, @NotNull byte[] data)
             throws IOException, InvalidConfigurationException {
-        PlayerWrapper playerWrapper;
-        try {
-            InventorySnapshot inventorySnapshot = (InventorySnapshot) load(file);
-            playerWrapper = inventorySnapshot.restore(player);
-        } catch (InvalidConfigurationException e) {
-            if (e.getCause() instanceof ReaderException) {
-                Log.w("Can''t load {0}''s inventory. Trying to use legacy loader...", player.getName());
-                playerWrapper = LegacySerialization.loadPlayer(player, file);
-            } else {
-                throw e;
+        try (BufferedInputStream stream = openStream(data)) {
+            DataFormat format = DataFormat.detect(stream);
+            if (format == DataFormat.LEGACY) {
+                countLoaded(format);
+                return LegacySerialization.loadPlayer(player, stream);
             }
+
+            return ((InventorySnapshot) load(stream, format)).restore(player);
         }
-        return playerWrapper;
     }
 
-    public static Backpack loadBackpack(@NotNull Path file) throws IOException, InvalidConfigurationException {
-        Backpack backpack;
-        try {
-            backpack = (Backpack) load(file);
-        } catch (InvalidConfigurationException e) {
-            if (e.getCause() instanceof ReaderException) {
-                Log.w("Can''t load backpack {0}. Trying to use legacy loader...", file.getFileName().toString());
-                backpack = LegacySerialization.loadBackpack(file);
+    /**
+     * Loads snapshot of the inventory. It is safe to call this method asynchronously.
+     *
+     * @return Snapshot of the inventory, or {@code null} if there is no saved inventory or it has legacy format
+     */
+    @Nullable
+    public static InventorySnapshot loadInventorySnapshot(@NotNull UUID uuid)
+            throws IOException, InvalidConfigurationException {
+        byte[] data = storage.load(StorageBackend.Kind.INVENTORY, uuid);
+        return data == null ? null : loadInventorySnapshot(data);
+    }
+
+    @Nullable
+    private static InventorySnapshot loadInventorySnapshot(@NotNull byte[] data)
+            throws IOException, InvalidConfigurationException {
+        try (BufferedInputStream stream = openStream(data)) {
+            DataFormat format = DataFormat.detect(stream);
+            // Legacy inventory can be loaded only for online player
+            return format == DataFormat.LEGACY ? null : (InventorySnapshot) load(stream, format);
+        }
+    }
+
+    /**
+     * Loads backpack with the given id.
+     *
+     * @return Loaded backpack, or {@code null} if there is no saved backpack or its type is unknown
+     */
+    @Nullable
+    public static Backpack loadBackpack(@NotNull UUID uuid) throws IOException, InvalidConfigurationException {
+        byte[] data = storage.load(StorageBackend.Kind.BACKPACK, uuid);
+        if (data == null) {
+            return null;
+        }
+
+        try (BufferedInputStream stream = openStream(data)) {
+            DataFormat format = DataFormat.detect(stream);
+            if (format == DataFormat.LEGACY) {
+                countLoaded(format);
+                return LegacySerialization.loadBackpack(uuid, stream);
+            }
+
+            return (Backpack) load(stream, format);
+        }
+    }
+
+    /**
+     * Reads last use time of the backpack without decoding of its contents.
+     * It is safe to call this method asynchronously.
+     *
+     * @return Last use time, or {@code 0} if it is unknown
+     */
+    public static long readBackpackLastUse(@NotNull UUID uuid) throws IOException {
+        byte[] data = storage.load(StorageBackend.Kind.BACKPACK, uuid);
+        if (data == null) {
+            return 0;
+        }
+
+        try (BufferedInputStream stream = openStream(data)) {
+            switch (DataFormat.detect(stream)) {
+                case BINARY:
+                    return BinarySerialization.readBackpackLastUse(stream);
+                case LEGACY:
+                    return LegacySerialization.readBackpackLastUse(stream);
+                default:
+                    return readYamlLastUse(stream);
+            }
+        }
+    }
+
+    private static long readYamlLastUse(@NotNull BufferedInputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String prefix = "  " + Backpack.BP_LAST_USE + ": ";
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(prefix)) {
+                try {
+                    return Long.parseLong(line.substring(prefix.length()).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Checks that data was saved by legacy versions of the plugin. It is safe to call this method asynchronously.
+     */
+    static boolean isLegacy(@NotNull byte[] data) throws IOException {
+        try (BufferedInputStream stream = openStream(data)) {
+            return DataFormat.detect(stream) == DataFormat.LEGACY;
+        }
+    }
+
+    /**
+     * Converts legacy data to the current format.
+     *
+     * @return Data in the current format, or {@code null} if the data is not relevant anymore
+     */
+    @Nullable
+    static byte[] convertLegacy(@NotNull StorageBackend.Kind kind, @NotNull UUID uuid, @NotNull byte[] data)
+            throws IOException {
+        Object converted;
+        try (BufferedInputStream stream = openStream(data)) {
+            if (kind == StorageBackend.Kind.INVENTORY) {
+                converted = LegacySerialization.loadInventorySnapshot(stream);
             } else {
-                throw e;
+                converted = LegacySerialization.loadBackpack(uuid, stream);
+            }
+        }
+
+        return converted == null ? null : encode(converted);
+    }
+
+    /**
+     * Returns number of inventories and backpacks loaded since server start, per format.
+     * It shows how much data of legacy format is still in use.
+     */
+    @NotNull
+    public static String getLoadCounters() {
+        StringBuilder counters = new StringBuilder();
+        for (DataFormat format : DataFormat.values()) {
+            if (format == DataFormat.UNKNOWN) {
+                continue;
             }
+
+            if (counters.length() > 0) {
+                counters.append(", ");
+            }
+            counters.append(format.name().toLowerCase()).append(": ").append(LOADED.get(format.ordinal()));
         }
 
-        return backpack;
+        return counters.toString();
     }
 
-    public static void save(@NotNull Object data, @NotNull Path file) throws IOException {
+    private static void countLoaded(@NotNull DataFormat format) {
+        LOADED.incrementAndGet(format.ordinal());
+    }
+
+    public static void backupBroken(@NotNull StorageBackend.Kind kind, @NotNull UUID uuid) {
+        try {
+            storage.backupBroken(kind, uuid);
+        } catch (IOException e) {
+            Log.w(e, "Error on backup of broken {0}", uuid.toString());
+        }
+    }
+
+    static void save(@NotNull StorageKey key, @NotNull Object data) throws IOException {
+        storage.save(key.getKind(), key.getId(), encode(data));
+    }
+
+    @NotNull
+    private static byte[] encode(@NotNull Object data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (Config.storageFormat == StorageFormat.BINARY && BinarySerialization.isSupported(data)) {
+            try {
+                try (OutputStream stream = new FastGZIPOutputStream(bytes)) {
+                    BinarySerialization.save(data, stream);
+                }
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                // Items may contain values that can't be written in binary format, YAML can write anything
+                Log.d(e);
+                bytes.reset();
+            }
+        }
+
         final FileConfiguration serializedData = new YamlConfiguration();
         serializedData.set(ROOT_TAG, data);
 
-        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), null);
-        try (OutputStreamWriter stream = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8)) {
+        try (OutputStreamWriter stream = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
             stream.write(serializedData.saveToString());
         }
-        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+        return bytes.toByteArray();
     }
 
-    @NotNull
-    private static Object load(@NotNull Path file)
+    @Nullable
+    private static Object load(@NotNull BufferedInputStream stream, @NotNull DataFormat format)
             throws IOException, InvalidConfigurationException {
-        final FileConfiguration serializedData = new YamlConfiguration();
-        try (InputStreamReader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8)) {
-            serializedData.load(reader);
+        Object data;
+        switch (format) {
+            case BINARY:
+                data = BinarySerialization.load(stream);
+                break;
+            case LEGACY:
+                throw new IOException("Legacy data should be loaded by LegacySerialization");
+            default:
+                // Files edited by hand can start with a comment, a blank line or BOM, so the format is not detected
+                final FileConfiguration serializedData = new YamlConfiguration();
+                serializedData.load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                data = serializedData.get(ROOT_TAG);
+                if (data == null) {
+                    throw new InvalidConfigurationException("Serialized data not found");
+                }
+                format = DataFormat.YAML;
         }
 
-        return Objects.requireNonNull(serializedData.get(ROOT_TAG), "Serialized data not found");
+        countLoaded(format);
+        return data;
+    }
+
+    @NotNull
+    private static BufferedInputStream openStream(@NotNull byte[] data) throws IOException {
+        return new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Binary data is compressed with the best speed, it is smaller than YAML anyway.
+     */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+        FastGZIPOutputStream(@NotNull OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
     }
 }
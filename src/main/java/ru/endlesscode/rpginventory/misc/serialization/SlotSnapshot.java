@@ -26,7 +26,7 @@ public class SlotSnapshot implements ConfigurationSerializable {
     private final boolean bought;
     private final List<ItemStack> items;
 
-    private SlotSnapshot(@NotNull String name, @NotNull String type, boolean bought, @NotNull List<ItemStack> items) {
+    SlotSnapshot(@NotNull String name, @NotNull String type, boolean bought, @NotNull List<ItemStack> items) {
         this.name = name;
         this.type = type;
         this.bought = bought;
@@ -41,6 +41,7 @@ public class SlotSnapshot implements ConfigurationSerializable {
         final List<ItemStack> items = slot.getSlotIds().stream()
                 .map(inventory::getItem)
                 .filter(stack -> ItemUtils.isNotEmpty(stack) && !slot.isCup(stack))
+                .map(ItemStack::clone)
                 .collect(Collectors.toList());
 
         return new SlotSnapshot(slot.getName(), slot.getSlotType().name(), bought, items);
@@ -93,4 +94,18 @@ public class SlotSnapshot implements ConfigurationSerializable {
     public String getName() {
         return name;
     }
+
+    @NotNull
+    String getType() {
+        return type;
+    }
+
+    boolean isBought() {
+        return bought;
+    }
+
+    @NotNull
+    List<ItemStack> getItems() {
+        return items;
+    }
 }
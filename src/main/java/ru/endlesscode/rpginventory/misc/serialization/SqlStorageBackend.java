@@ -0,0 +1,289 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stores inventories and backpacks in embedded SQLite database.
+ * <p>
+ * Saved data is collected for a short time and written to the database in one transaction,
+ * so saving of many inventories costs one commit. Not yet written data is visible to readers.
+ */
+class SqlStorageBackend implements StorageBackend {
+
+    private static final long BATCH_DELAY_MILLIS = 50;
+    private static final long FLUSH_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Marks deleted data in the pending writes.
+     */
+    private static final byte[] DELETED = new byte[0];
+
+    private final Connection connection;
+    private final Map<StorageKey, byte[]> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RPGInventory SQL Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    SqlStorageBackend(@NotNull Path databaseFile) throws IOException {
+        try {
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+            try (Statement statement = this.connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                for (Kind kind : Kind.values()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + getTable(kind)
+                            + " (id TEXT PRIMARY KEY, data BLOB NOT NULL)");
+                }
+                statement.execute("CREATE TABLE IF NOT EXISTS broken"
+                        + " (kind TEXT NOT NULL, id TEXT NOT NULL, data BLOB NOT NULL, time INTEGER NOT NULL)");
+            }
+        } catch (SQLException e) {
+            throw new IOException("Can't open database " + databaseFile.getFileName(), e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] load(@NotNull Kind kind, @NotNull UUID id) throws IOException {
+        byte[] data = this.pending.get(new StorageKey(kind, id));
+        if (data != null) {
+            return data == DELETED ? null : data;
+        }
+
+        synchronized (this.connection) {
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT data FROM " + getTable(kind) + " WHERE id = ?")) {
+                statement.setString(1, id.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() ? result.getBytes(1) : null;
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void save(@NotNull Kind kind, @NotNull UUID id, @NotNull byte[] data) {
+        this.pending.put(new StorageKey(kind, id), data);
+        this.scheduleCommit();
+    }
+
+    @Override
+    public void delete(@NotNull Kind kind, @NotNull UUID id) {
+        this.pending.put(new StorageKey(kind, id), DELETED);
+        this.scheduleCommit();
+    }
+
+    @Override
+    public boolean exists(@NotNull Kind kind, @NotNull UUID id) throws IOException {
+        return this.load(kind, id) != null;
+    }
+
+    @NotNull
+    @Override
+    public List<UUID> list(@NotNull Kind kind) throws IOException {
+        this.flush();
+
+        List<UUID> ids = new ArrayList<>();
+        synchronized (this.connection) {
+            try (Statement statement = this.connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT id FROM " + getTable(kind))) {
+                while (result.next()) {
+                    ids.add(UUID.fromString(result.getString(1)));
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        return ids;
+    }
+
+    @Override
+    public void backupBroken(@NotNull Kind kind, @NotNull UUID id) throws IOException {
+        this.flush();
+
+        synchronized (this.connection) {
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "INSERT INTO broken (kind, id, data, time) SELECT ?, id, data, ? FROM " + getTable(kind) + " WHERE id = ?")) {
+                statement.setString(1, kind.name());
+                statement.setLong(2, System.currentTimeMillis());
+                statement.setString(3, id.toString());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Commits pending data.
+     *
+     * @throws IOException if the data was not committed or the thread was interrupted on waiting
+     */
+    @Override
+    public void flush() throws IOException {
+        try {
+            this.writer.submit(() -> {
+                this.commit();
+                return null;
+            }).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted on flushing of the database");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Error on flushing of the database", e);
+        }
+    }
+
+    /**
+     * Commits pending data and closes the database.
+     *
+     * @throws IOException if pending data was not committed, it is lost
+     */
+    @Override
+    public void close() throws IOException {
+        IOException flushError = null;
+        try {
+            this.flush();
+        } catch (IOException e) {
+            flushError = e;
+        }
+        this.writer.shutdown();
+
+        synchronized (this.connection) {
+            try {
+                this.connection.close();
+            } catch (SQLException e) {
+                if (flushError == null) {
+                    throw new IOException(e);
+                }
+                flushError.addSuppressed(e);
+            }
+        }
+
+        if (flushError != null) {
+            throw new IOException(this.pending.size() + " inventories and backpacks were not written to the database",
+                    flushError);
+        }
+    }
+
+    private void scheduleCommit() {
+        if (this.commitScheduled.compareAndSet(false, true)) {
+            this.writer.schedule(this::commitLater, BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Commits pending data in background. Failed commit is retried later.
+     */
+    private void commitLater() {
+        try {
+            this.commit();
+        } catch (SQLException e) {
+            Log.w(e, "Error on writing to the database");
+            this.scheduleCommit();
+        }
+    }
+
+    private void commit() throws SQLException {
+        this.commitScheduled.set(false);
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        Map<StorageKey, byte[]> batch = new HashMap<>(this.pending);
+        synchronized (this.connection) {
+            try {
+                this.connection.setAutoCommit(false);
+                for (Kind kind : Kind.values()) {
+                    this.writeBatch(kind, batch);
+                }
+                this.connection.commit();
+            } catch (SQLException e) {
+                this.rollback();
+                throw e;
+            } finally {
+                this.resetAutoCommit();
+            }
+        }
+
+        // Data saved again during the commit stays pending
+        batch.forEach(this.pending::remove);
+    }
+
+    private void writeBatch(@NotNull Kind kind, @NotNull Map<StorageKey, byte[]> batch) throws SQLException {
+        String table = getTable(kind);
+        try (PreparedStatement upsert = this.connection.prepareStatement(
+                "INSERT OR REPLACE INTO " + table + " (id, data) VALUES (?, ?)");
+             PreparedStatement delete = this.connection.prepareStatement(
+                     "DELETE FROM " + table + " WHERE id = ?")) {
+            for (Map.Entry<StorageKey, byte[]> entry : batch.entrySet()) {
+                StorageKey key = entry.getKey();
+                if (key.getKind() != kind) {
+                    continue;
+                }
+
+                if (entry.getValue() == DELETED) {
+                    delete.setString(1, key.getId().toString());
+                    delete.addBatch();
+                } else {
+                    upsert.setString(1, key.getId().toString());
+                    upsert.setBytes(2, entry.getValue());
+                    upsert.addBatch();
+                }
+            }
+
+            upsert.executeBatch();
+            delete.executeBatch();
+        }
+    }
+
+    private void rollback() {
+        try {
+            this.connection.rollback();
+        } catch (SQLException e) {
+            Log.d(e);
+        }
+    }
+
+    private void resetAutoCommit() {
+        try {
+            this.connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            Log.d(e);
+        }
+    }
+
+    @NotNull
+    private static String getTable(@NotNull Kind kind) {
+        return kind == Kind.INVENTORY ? "inventories" : "backpacks";
+    }
+}
@@ -0,0 +1,51 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Storage of encoded inventories and backpacks.
+ * <p>
+ * Implementations should be thread-safe, methods are called from background threads.
+ */
+public interface StorageBackend {
+
+    /**
+     * Loads encoded data.
+     *
+     * @return Encoded data, or {@code null} if there is no data with the given id
+     */
+    @Nullable
+    byte[] load(@NotNull Kind kind, @NotNull UUID id) throws IOException;
+
+    void save(@NotNull Kind kind, @NotNull UUID id, @NotNull byte[] data) throws IOException;
+
+    void delete(@NotNull Kind kind, @NotNull UUID id) throws IOException;
+
+    boolean exists(@NotNull Kind kind, @NotNull UUID id) throws IOException;
+
+    @NotNull
+    List<UUID> list(@NotNull Kind kind) throws IOException;
+
+    /**
+     * Keeps the data that can't be decoded aside, so it will not be overwritten.
+     */
+    void backupBroken(@NotNull Kind kind, @NotNull UUID id) throws IOException;
+
+    /**
+     * Blocks until all saved data is persisted.
+     */
+    default void flush() throws IOException {
+    }
+
+    void close() throws IOException;
+
+    enum Kind {
+        INVENTORY,
+        BACKPACK
+    }
+}
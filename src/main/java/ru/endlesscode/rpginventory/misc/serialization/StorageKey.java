@@ -0,0 +1,54 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Identifies inventory or backpack in the storage.
+ */
+final class StorageKey {
+
+    @NotNull
+    private final StorageBackend.Kind kind;
+    @NotNull
+    private final UUID id;
+
+    StorageKey(@NotNull StorageBackend.Kind kind, @NotNull UUID id) {
+        this.kind = kind;
+        this.id = id;
+    }
+
+    @NotNull
+    StorageBackend.Kind getKind() {
+        return kind;
+    }
+
+    @NotNull
+    UUID getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StorageKey)) {
+            return false;
+        }
+        StorageKey key = (StorageKey) o;
+        return this.kind == key.kind && this.id.equals(key.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.kind, this.id);
+    }
+
+    @Override
+    public String toString() {
+        return this.kind.name().toLowerCase() + " " + this.id;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.inspector.bukkit.scheduler.TrackedBukkitRunnable;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Moves files of inventories and backpacks to the current storage layout in background.
+ * Files are moved in small time-sliced batches, so the server keeps working during the migration.
+ * Every file is moved in the save queue stripe of its data, so it is never moved while the data is saving.
+ */
+public class StorageMigrator extends TrackedBukkitRunnable {
+
+    public static final long PERIOD_TICKS = 1;
+
+    private static final long BATCH_BUDGET = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path[] folders = {StoragePaths.getInventoriesFolder(), StoragePaths.getBackpacksFolder()};
+    private final String[] extensions = {StoragePaths.INVENTORY_EXTENSION, StoragePaths.BACKPACK_EXTENSION};
+    private final StorageBackend.Kind[] kinds = {StorageBackend.Kind.INVENTORY, StorageBackend.Kind.BACKPACK};
+
+    private int folderIndex = 0;
+    @Nullable
+    private Stream<Path> stream;
+    @Nullable
+    private Iterator<Path> iterator;
+    private int moved = 0;
+
+    @Override
+    public void run() {
+        long startedAt = System.nanoTime();
+        try {
+            while (System.nanoTime() - startedAt < BATCH_BUDGET) {
+                if (this.iterator == null && !this.openNextFolder()) {
+                    this.finish();
+                    return;
+                }
+
+                if (this.iterator.hasNext()) {
+                    this.migrate(this.iterator.next());
+                } else {
+                    this.closeStream();
+                    this.folderIndex++;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            Log.w(e, "Error on migration of storage layout");
+            this.closeStream();
+            this.folderIndex++;
+        }
+    }
+
+    private boolean openNextFolder() {
+        while (this.folderIndex < this.folders.length) {
+            Path folder = this.folders[this.folderIndex];
+            if (Files.isDirectory(folder)) {
+                try {
+                    this.stream = Files.walk(folder);
+                    this.iterator = this.stream.iterator();
+                    return true;
+                } catch (IOException e) {
+                    Log.w(e, "Error on migration of storage layout");
+                }
+            }
+            this.folderIndex++;
+        }
+
+        return false;
+    }
+
+    private void migrate(@NotNull Path file) {
+        String extension = this.extensions[this.folderIndex];
+        UUID uuid = StoragePaths.parseId(file, extension);
+        if (uuid == null) {
+            return;
+        }
+
+        Path target = StoragePaths.getTarget(this.folders[this.folderIndex], uuid, extension);
+        if (target.equals(file) || !Files.isRegularFile(file)) {
+            return;
+        }
+
+        StorageBackend.Kind kind = this.kinds[this.folderIndex];
+        try {
+            if (SaveQueue.execute(kind, uuid, () -> Files.isRegularFile(file) && StoragePaths.move(file, target))) {
+                this.moved++;
+            }
+        } catch (IOException e) {
+            Log.w(e, "Error on moving {0}", file.getFileName().toString());
+        }
+    }
+
+    private void finish() {
+        this.cancel();
+        if (this.moved > 0) {
+            Log.i("{0} file(s) has been moved to the current storage layout", this.moved);
+        }
+    }
+
+    private void closeStream() {
+        if (this.stream != null) {
+            this.stream.close();
+        }
+
+        this.stream = null;
+        this.iterator = null;
+    }
+}
@@ -0,0 +1,152 @@
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.misc.config.StorageLayout;
+import ru.endlesscode.rpginventory.utils.FileUtils;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Resolves locations of inventories and backpacks files.
+ * <p>
+ * Files stored in the other layout are moved to the current layout on access,
+ * and in background by {@link StorageMigrator}.
+ */
+public final class StoragePaths {
+
+    static final String INVENTORY_EXTENSION = ".inv";
+    static final String BACKPACK_EXTENSION = ".bp";
+
+    private static Path inventoriesFolder;
+    private static Path backpacksFolder;
+    private static StorageLayout layout = StorageLayout.FLAT;
+
+    private StoragePaths() {
+        // static class
+    }
+
+    public static void init(@NotNull Path dataPath, @NotNull StorageLayout layout) {
+        StoragePaths.inventoriesFolder = dataPath.resolve("inventories");
+        StoragePaths.backpacksFolder = dataPath.resolve("backpacks");
+        StoragePaths.layout = layout;
+    }
+
+    @NotNull
+    public static Path getInventoriesFolder() {
+        return inventoriesFolder;
+    }
+
+    @NotNull
+    public static Path getBackpacksFolder() {
+        return backpacksFolder;
+    }
+
+    @NotNull
+    public static Path getInventoryFile(@NotNull UUID uuid) {
+        return resolve(inventoriesFolder, uuid, INVENTORY_EXTENSION, layout);
+    }
+
+    @NotNull
+    public static Path getBackpackFile(@NotNull UUID uuid) {
+        return resolve(backpacksFolder, uuid, BACKPACK_EXTENSION, layout);
+    }
+
+    /**
+     * Returns location of the inventory file, moving the file from the other layout if needed.
+     */
+    @NotNull
+    public static Path findInventoryFile(@NotNull UUID uuid) {
+        return find(inventoriesFolder, uuid, INVENTORY_EXTENSION);
+    }
+
+    /**
+     * Returns location of the backpack file, moving the file from the other layout if needed.
+     */
+    @NotNull
+    public static Path findBackpackFile(@NotNull UUID uuid) {
+        return find(backpacksFolder, uuid, BACKPACK_EXTENSION);
+    }
+
+    /**
+     * Returns location of the file in the current layout.
+     */
+    @NotNull
+    static Path getTarget(@NotNull Path folder, @NotNull UUID uuid, @NotNull String extension) {
+        return resolve(folder, uuid, extension, layout);
+    }
+
+    /**
+     * Parses id from the name of the file.
+     *
+     * @return Parsed id, or {@code null} if the file is not an inventory or backpack
+     */
+    @Nullable
+    static UUID parseId(@NotNull Path file, @NotNull String extension) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(extension)) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(FileUtils.stripExtension(fileName));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves the file to the target location. Data that is already in the target location
+     * is newer, so in this case the file is just deleted.
+     *
+     * @return {@code true} if the file was moved
+     */
+    static boolean move(@NotNull Path file, @NotNull Path target) throws IOException {
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(file, target);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(file);
+        } catch (NoSuchFileException e) {
+            // File was already moved from another thread
+        }
+
+        return false;
+    }
+
+    @NotNull
+    private static Path find(@NotNull Path folder, @NotNull UUID uuid, @NotNull String extension) {
+        Path target = resolve(folder, uuid, extension, layout);
+        if (Files.notExists(target)) {
+            StorageLayout otherLayout = layout == StorageLayout.FLAT ? StorageLayout.SHARDED : StorageLayout.FLAT;
+            Path file = resolve(folder, uuid, extension, otherLayout);
+            if (Files.exists(file)) {
+                try {
+                    move(file, target);
+                } catch (IOException e) {
+                    Log.w(e, "Error on moving {0}", file.getFileName().toString());
+                }
+            }
+        }
+
+        return target;
+    }
+
+    @NotNull
+    private static Path resolve(@NotNull Path folder, @NotNull UUID uuid, @NotNull String extension,
+                                @NotNull StorageLayout layout) {
+        String name = uuid.toString();
+        if (layout == StorageLayout.SHARDED) {
+            folder = folder.resolve(name.substring(0, 2)).resolve(name.substring(2, 4));
+        }
+
+        return folder.resolve(name + extension);
+    }
+}
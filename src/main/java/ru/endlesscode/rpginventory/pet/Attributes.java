@@ -23,6 +23,11 @@ import java.util.UUID;
 public class Attributes {
     public static final String SPEED_MODIFIER = "RPGInventory Speed Bonus";
     public static final UUID SPEED_MODIFIER_ID = UUID.fromString("2deaf4fc-1673-4c5b-ac4f-25e37e08760f");
+    public static final String ARMOR_MODIFIER = "RPGInventory Armor Bonus";
+    public static final UUID ARMOR_MODIFIER_ID = UUID.fromString("549bf6ed-e308-4e42-9018-1d7eaea950e5");
+    public static final UUID ARMOR_MULTIPLIER_ID = UUID.fromString("93365e99-85f8-4588-b30d-85031d0b0716");
+    public static final String DAMAGE_MODIFIER = "RPGInventory Damage Bonus";
+    public static final UUID DAMAGE_MODIFIER_ID = UUID.fromString("92852ec8-d650-44dc-865f-f085fd79434a");
 
     static final double ONE_BPS = 0.10638297872;
     static final double GALLOP_MULTIPLIER = 4.46808510803;
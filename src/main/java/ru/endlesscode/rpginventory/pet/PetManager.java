@@ -66,9 +66,11 @@ import ru.endlesscode.rpginventory.utils.SafeEnums;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -82,6 +84,11 @@ public class PetManager {
 
     private static final String METADATA_KEY_PET_OWNER = "rpginventory:petowner";
     private static final Map<String, PetType> PETS = new HashMap<>();
+    /**
+     * Pets by lore of their items, to recognize items without pet tag that were created by previous versions.
+     */
+    private static final Map<List<String>, PetType> LEGACY_PETS = new HashMap<>();
+    private static final Set<Material> LEGACY_PET_MATERIALS = EnumSet.noneOf(Material.class);
     private static final Map<String, PetFood> PET_FOOD = new HashMap<>();
     private static final String DEATH_TIME_TAG = "pet.deathTime";
     private static CooldownsTimer COOLDOWNS_TIMER;
@@ -119,6 +126,8 @@ public class PetManager {
             }
 
             PETS.clear();
+            LEGACY_PETS.clear();
+            LEGACY_PET_MATERIALS.clear();
             for (String key : pets.getKeys(false)) {
                 ConfigurationSection section = pets.getConfigurationSection(key);
                 if (section != null) {
@@ -167,6 +176,13 @@ public class PetManager {
             }
             PetType petType = new PetType(texture, config);
             PetManager.PETS.put(name, petType);
+
+            ItemStack spawnItem = petType.getSpawnItem();
+            ItemMeta meta = spawnItem.getItemMeta();
+            if (meta != null && meta.hasLore()) {
+                PetManager.LEGACY_PETS.putIfAbsent(meta.getLore(), petType);
+                PetManager.LEGACY_PET_MATERIALS.add(spawnItem.getType());
+            }
         } catch (Exception e) {
             Log.s("Pet ''{0}'' can''t be added: {1}", name, e.toString());
             Log.d(e);
@@ -408,6 +424,7 @@ public class PetManager {
         if (petItem != null) {
             PetManager.saveHealth(petItem, pet.getHealth());
             inventory.setItem(SLOT_PET, petItem);
+            playerWrapper.markChanged();
         }
 
         EffectUtils.playDespawnEffect(pet);
@@ -570,35 +587,31 @@ public class PetManager {
         return food == null ? null : food.getFoodItem();
     }
 
+    /**
+     * Converts pet item without pet tag to the item of its pet.
+     *
+     * @return Item of the pet, or the same item if it is already tagged or it is not a pet item
+     */
     public static ItemStack toPetItem(ItemStack item) {
-        if (ItemUtils.isEmpty(item)) {
+        if (PetType.isPetItem(item)) {
             return item;
         }
 
-        List<String> itemLore = item.getItemMeta().getLore();
-        for (PetType petType : PETS.values()) {
-            List<String> petItemLore = petType.getSpawnItem().getItemMeta().getLore();
-            if (itemLore.equals(petItemLore)) {
-                return petType.getSpawnItem();
-            }
-        }
-
-        return item;
+        PetType petType = getLegacyPet(item);
+        return petType == null ? item : petType.getSpawnItem();
     }
 
     public static boolean isPetItem(@Nullable ItemStack item) {
-        if (ItemUtils.isEmpty(item) || !item.hasItemMeta() || !item.getItemMeta().hasLore()) {
-            return false;
-        }
+        return PetType.isPetItem(item) || getLegacyPet(item) != null;
+    }
 
-        List<String> itemLore = item.getItemMeta().getLore();
-        for (PetType petType : PETS.values()) {
-            List<String> petItemLore = petType.getSpawnItem().getItemMeta().getLore();
-            if (itemLore.equals(petItemLore)) {
-                return true;
-            }
+    @Nullable
+    private static PetType getLegacyPet(@Nullable ItemStack item) {
+        if (ItemUtils.isEmpty(item) || !LEGACY_PET_MATERIALS.contains(item.getType()) || !item.hasItemMeta()) {
+            return null;
         }
 
-        return false;
+        ItemMeta meta = item.getItemMeta();
+        return meta != null && meta.hasLore() ? LEGACY_PETS.get(meta.getLore()) : null;
     }
 }
@@ -23,6 +23,7 @@ import org.bukkit.inventory.EntityEquipment;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.endlesscode.rpginventory.api.InventoryAPI;
 import ru.endlesscode.rpginventory.inventory.ArmorType;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
@@ -31,8 +32,8 @@ import ru.endlesscode.rpginventory.item.CustomItem;
 import ru.endlesscode.rpginventory.item.ItemManager;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InventoryUtils {
     public static void heldFreeSlot(@NotNull Player player, int start, SearchType type) {
@@ -80,23 +81,41 @@ public class InventoryUtils {
 
     @NotNull
     public static List<ItemStack> collectEffectiveItems(@NotNull Player player, boolean notifyPlayer) {
-        List<ItemStack> items = new ArrayList<>(InventoryAPI.getPassiveItems(player));
-        Collections.addAll(items, player.getInventory().getArmorContents());
+        List<ItemStack> items = new ArrayList<>();
+        forEachEffectiveItem(player, notifyPlayer, items::add);
+        return items;
+    }
+
+    /**
+     * Passes passive items, armor and allowed custom items in hands of the player to the action.
+     * Empty items are skipped.
+     */
+    public static void forEachEffectiveItem(@NotNull Player player, boolean notifyPlayer, @NotNull Consumer<ItemStack> action) {
+        InventoryAPI.forEachPassiveItem(player, action);
 
         EntityEquipment equipment = player.getEquipment();
         assert equipment != null;
 
+        acceptIfNotEmpty(equipment.getHelmet(), action);
+        acceptIfNotEmpty(equipment.getChestplate(), action);
+        acceptIfNotEmpty(equipment.getLeggings(), action);
+        acceptIfNotEmpty(equipment.getBoots(), action);
+
         ItemStack itemInHand = equipment.getItemInMainHand();
         if (CustomItem.isCustomItem(itemInHand) && ItemManager.allowedForPlayer(player, itemInHand, notifyPlayer)) {
-            items.add(itemInHand);
+            action.accept(itemInHand);
         }
 
         itemInHand = equipment.getItemInOffHand();
         if (CustomItem.isCustomItem(itemInHand) && ItemManager.allowedForPlayer(player, itemInHand, notifyPlayer)) {
-            items.add(itemInHand);
+            action.accept(itemInHand);
         }
+    }
 
-        return items;
+    private static void acceptIfNotEmpty(@Nullable ItemStack item, @NotNull Consumer<ItemStack> action) {
+        if (ItemUtils.isNotEmpty(item)) {
+            action.accept(item);
+        }
     }
 
     public enum SearchType {
@@ -0,0 +1,150 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.utils;
+
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.wrappers.nbt.NbtCompound;
+import com.comphenix.protocol.wrappers.nbt.NbtFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches string tags of items, so resolving of the same item again is a hash lookup.
+ * <p>
+ * Identity tags are read from {@link org.bukkit.persistence.PersistentDataContainer} first
+ * and from raw NBT, where they were stored by previous versions, next.
+ * <p>
+ * Entries are bound to identity of the NMS item stack and are valid until the stack gets another tag.
+ * Modifications of the tag made through {@link ItemUtils} and {@link NbtFactoryMirror} invalidate the entry.
+ * Limitation: modification of the tag in place, bypassing these classes (e.g. by another plugin via NMS),
+ * is not detected, so identity tags should not be changed this way.
+ * If tag of the NMS item stack can't be read directly, tags are read without caching.
+ */
+final class ItemTagCache {
+
+    private static final long MAX_SIZE = 10_000;
+
+    /**
+     * Tag where {@link org.bukkit.persistence.PersistentDataContainer} stores its values.
+     */
+    private static final String BUKKIT_VALUES_TAG = "PublicBukkitValues";
+
+    /**
+     * Marker of absent tag, compared by identity.
+     */
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    private static final String ABSENT = new String();
+
+    private static final Cache<Object, Entry> CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    private ItemTagCache() {
+        // static class
+    }
+
+    /**
+     * Reads string tag of the item without copying of the item and its tag.
+     *
+     * @return Value of the tag, or {@code null} if the item has no such tag
+     */
+    @Nullable
+    static String getTag(@NotNull ItemStack item, @NotNull String tag) {
+        Object nmsStack = MinecraftReflection.isCraftItemStack(item)
+                ? MinecraftReflection.getMinecraftItemStack(item)
+                : null;
+        if (nmsStack == null || !NbtFactoryMirror.isRawItemTagSupported(nmsStack)) {
+            NamespacedKey key = ItemUtils.getIdentityKey(tag);
+            ItemMeta meta;
+            if (key != null && (meta = item.getItemMeta()) != null) {
+                String value = meta.getPersistentDataContainer().get(key, PersistentDataType.STRING);
+                if (value != null) {
+                    return value;
+                }
+            }
+
+            // Copy of the item is created for every call, there is nothing to cache
+            NbtCompound nbt = NbtFactoryMirror.getItemCompoundOrNull(ItemUtils.toBukkitItemStack(item));
+            return readTag(nbt, tag);
+        }
+
+        Object nmsTag = NbtFactoryMirror.getRawItemTag(nmsStack);
+        if (nmsTag == null) {
+            return null;
+        }
+
+        Entry entry = CACHE.getIfPresent(nmsStack);
+        if (entry == null || entry.nmsTag != nmsTag) {
+            entry = new Entry(nmsTag);
+            CACHE.put(nmsStack, entry);
+        }
+
+        String value = entry.values.get(tag);
+        if (value == null) {
+            value = readTag(NbtFactory.fromNMSCompound(nmsTag), tag);
+            entry.values.put(tag, value == null ? ABSENT : value);
+        }
+
+        //noinspection StringEquality
+        return value == ABSENT ? null : value;
+    }
+
+    static void invalidate(@Nullable ItemStack item) {
+        if (item != null && MinecraftReflection.isCraftItemStack(item)) {
+            CACHE.invalidate(MinecraftReflection.getMinecraftItemStack(item));
+        }
+    }
+
+    @Nullable
+    private static String readTag(@Nullable NbtCompound nbt, @NotNull String tag) {
+        if (nbt == null) {
+            return null;
+        }
+
+        NamespacedKey key = ItemUtils.getIdentityKey(tag);
+        if (key != null && nbt.containsKey(BUKKIT_VALUES_TAG)) {
+            NbtCompound values = nbt.getCompound(BUKKIT_VALUES_TAG);
+            String name = key.toString();
+            if (values.containsKey(name)) {
+                return values.getString(name);
+            }
+        }
+
+        return nbt.containsKey(tag) ? nbt.getString(tag) : null;
+    }
+
+    private static class Entry {
+        private final Object nmsTag;
+        private final Map<String, String> values = new ConcurrentHashMap<>(4);
+
+        private Entry(@NotNull Object nmsTag) {
+            this.nmsTag = nmsTag;
+        }
+    }
+}
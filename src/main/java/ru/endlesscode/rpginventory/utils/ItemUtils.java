@@ -21,12 +21,16 @@ package ru.endlesscode.rpginventory.utils;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.wrappers.nbt.NbtCompound;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.Damageable;
 import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import ru.endlesscode.rpginventory.RPGInventory;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackManager;
 import ru.endlesscode.rpginventory.inventory.backpack.BackpackType;
 import ru.endlesscode.rpginventory.item.CustomItem;
@@ -37,6 +41,11 @@ import ru.endlesscode.rpginventory.pet.PetFood;
 import ru.endlesscode.rpginventory.pet.PetManager;
 import ru.endlesscode.rpginventory.pet.PetType;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Created by OsipXD on 28.08.2015
  * It is part of the RpgInventory.
@@ -50,6 +59,20 @@ public class ItemUtils {
     public static final String ITEM_TAG = "rpginv.id";
     public static final String FOOD_TAG = "food.id";
     public static final String PET_TAG = "pet.id";
+    /**
+     * Marks placeholder items of the plugin. Value is the name of the slot for cups,
+     * and starts with {@code #} for other placeholders.
+     */
+    public static final String PLACEHOLDER_TAG = "rpginv.placeholder";
+
+    /**
+     * Tags identifying items of the plugin. They are stored in {@link PersistentDataContainer},
+     * other tags are stored in raw NBT.
+     */
+    private static final List<String> IDENTITY_TAGS = Arrays.asList(
+            ITEM_TAG, PET_TAG, FOOD_TAG, BACKPACK_TAG, BACKPACK_UID_TAG, PLACEHOLDER_TAG
+    );
+    private static final Map<String, NamespacedKey> IDENTITY_KEYS = new ConcurrentHashMap<>();
 
     @NotNull
     public static ItemStack setTag(ItemStack item, @NotNull String tag, @NotNull String value) {
@@ -58,6 +81,21 @@ public class ItemUtils {
             return bukkitItem;
         }
 
+        ItemTagCache.invalidate(bukkitItem);
+        NamespacedKey key = getIdentityKey(tag);
+        ItemMeta meta;
+        if (key != null && (meta = bukkitItem.getItemMeta()) != null) {
+            PersistentDataContainer data = meta.getPersistentDataContainer();
+            if (!data.has(key, PersistentDataType.STRING)) {
+                data.set(key, PersistentDataType.STRING, value);
+                bukkitItem.setItemMeta(meta);
+            }
+
+            // Tag is migrated from raw NBT
+            removeRawTag(bukkitItem, tag);
+            return bukkitItem;
+        }
+
         NbtCompound nbt = NbtFactoryMirror.fromItemCompound(bukkitItem);
         if (!nbt.containsKey(tag)) {
             nbt.put(tag, value);
@@ -67,6 +105,28 @@ public class ItemUtils {
         return bukkitItem;
     }
 
+    private static void removeRawTag(@NotNull ItemStack bukkitItem, @NotNull String tag) {
+        NbtCompound nbt = NbtFactoryMirror.getItemCompoundOrNull(bukkitItem);
+        if (nbt != null && nbt.containsKey(tag)) {
+            nbt.remove(tag);
+            NbtFactoryMirror.setItemTag(bukkitItem, nbt);
+        }
+    }
+
+    /**
+     * Returns key of the tag in {@link PersistentDataContainer}.
+     *
+     * @return Key of the tag, or {@code null} if the tag is stored in raw NBT
+     */
+    @Nullable
+    static NamespacedKey getIdentityKey(@NotNull String tag) {
+        if (!IDENTITY_TAGS.contains(tag)) {
+            return null;
+        }
+
+        return IDENTITY_KEYS.computeIfAbsent(tag, name -> new NamespacedKey(RPGInventory.getInstance(), name));
+    }
+
     @NotNull
     public static String getTag(@NotNull ItemStack item, @NotNull String tag) {
         return getTag(item, tag, "");
@@ -75,28 +135,17 @@ public class ItemUtils {
     @NotNull
     @SuppressWarnings("WeakerAccess")
     public static String getTag(@NotNull ItemStack item, @NotNull String tag, @NotNull String defaultValue) {
-        final ItemStack bukkitItem = toBukkitItemStack(item);
-        if (isEmpty(bukkitItem)) {
+        if (isEmpty(item)) {
             return "";
         }
 
-        NbtCompound nbt = NbtFactoryMirror.fromItemCompound(bukkitItem);
-        return nbt.containsKey(tag) ? nbt.getString(tag) : defaultValue;
+        String value = ItemTagCache.getTag(item, tag);
+        return value != null ? value : defaultValue;
     }
 
     @Contract("null, _ -> false")
-    public static boolean hasTag(@Nullable ItemStack originalItem, String tag) {
-        if (isEmpty(originalItem) || !originalItem.hasItemMeta()) {
-            return false;
-        }
-
-        ItemStack item = toBukkitItemStack(originalItem.clone());
-        if (isEmpty(item)) {
-            return false;
-        }
-
-        NbtCompound nbt = NbtFactoryMirror.fromItemCompound(item);
-        return nbt.containsKey(tag);
+    public static boolean hasTag(@Nullable ItemStack item, String tag) {
+        return isNotEmpty(item) && ItemTagCache.getTag(item, tag) != null;
     }
 
     public static boolean isItemHasDurability(ItemStack item) {
@@ -140,9 +189,11 @@ public class ItemUtils {
 
             foundTextureData = type.getTextureData();
 
+            // Backpack item is kept, so its tags should be migrated
+            item = ItemUtils.setTag(item, ItemUtils.BACKPACK_TAG, type.getId());
             String bpUID = ItemUtils.getTag(item, ItemUtils.BACKPACK_UID_TAG);
             if (!bpUID.isEmpty()) {
-                ItemUtils.setTag(item, ItemUtils.BACKPACK_UID_TAG, bpUID);
+                item = ItemUtils.setTag(item, ItemUtils.BACKPACK_UID_TAG, bpUID);
             }
         } else if (PetType.isPetItem(item)) {
             PetType petType = PetManager.getPetFromItem(item);
@@ -165,6 +216,11 @@ public class ItemUtils {
             foundTextureData = food.getTextureData();
 
             item = food.getFoodItem();
+        } else if (PetManager.isPetItem(item)) {
+            // Pet items of previous versions have no pet tag, so they are recognized by lore
+            item = PetManager.toPetItem(item).clone();
+            PetType petType = PetManager.getPetFromItem(item);
+            foundTextureData = petType == null ? -1 : petType.getTextureData();
         } else {
             return item;
         }
@@ -199,6 +255,7 @@ public class ItemUtils {
             } else {
                 meta.setCustomModelData(data);
             }
+            ItemTagCache.invalidate(itemStack);
             itemStack.setItemMeta(meta);
         }
     }
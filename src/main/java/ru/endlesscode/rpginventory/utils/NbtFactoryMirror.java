@@ -9,6 +9,9 @@ import com.comphenix.protocol.wrappers.nbt.NbtFactory;
 import com.comphenix.protocol.wrappers.nbt.NbtWrapper;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
 
 /**
  * For some kind of shit, ProtocolLib's method works wrong in version 4.4.0 But if I just copy
@@ -19,20 +22,73 @@ import org.bukkit.inventory.ItemStack;
 public final class NbtFactoryMirror {
 
     private static StructureModifier<Object> itemStackModifier;
+    private static Field tagField;
+    private static boolean rawItemTagSupported = true;
 
     private NbtFactoryMirror() {
     }
 
     public static NbtCompound fromItemCompound(ItemStack stack) {
+        // Returned compound can be modified
+        ItemTagCache.invalidate(stack);
         return NbtFactory.asCompound(fromItemTag(stack));
     }
 
+    /**
+     * Returns tag of the item without creating a new one if it is absent.
+     */
+    @Nullable
+    public static NbtCompound getItemCompoundOrNull(ItemStack stack) {
+        checkItemStack(stack);
+        // Returned compound can be modified
+        ItemTagCache.invalidate(stack);
+        NbtBase<?> result = getStackModifier(stack).read(0);
+        return result == null ? null : NbtFactory.asCompound(result);
+    }
+
     public static void setItemTag(ItemStack stack, NbtCompound compound) {
         checkItemStack(stack);
+        ItemTagCache.invalidate(stack);
         StructureModifier<NbtBase<?>> modifier = getStackModifier(stack);
         modifier.write(0, compound);
     }
 
+    /**
+     * Checks that NMS tag can be read directly from the NMS item stack.
+     * Since 1.20.5 item stacks have no tag field, data components are used instead.
+     */
+    static boolean isRawItemTagSupported(Object nmsStack) {
+        if (tagField == null && rawItemTagSupported) {
+            try {
+                Field field = new StructureModifier<>(nmsStack.getClass(), Object.class, false)
+                        .withType(MinecraftReflection.getNBTBaseClass())
+                        .getField(0);
+                field.setAccessible(true);
+                tagField = field;
+            } catch (RuntimeException e) {
+                Log.w("Tag field of items not found, tags of items will not be cached: {0}", e.toString());
+                rawItemTagSupported = false;
+            }
+        }
+
+        return rawItemTagSupported;
+    }
+
+    /**
+     * Reads NMS tag of the NMS item stack without wrapping and conversion.
+     * Should be called only if {@link #isRawItemTagSupported} returned {@code true}.
+     *
+     * @return NMS tag, or {@code null} if the item has no tag
+     */
+    @Nullable
+    static Object getRawItemTag(Object nmsStack) {
+        try {
+            return tagField.get(nmsStack);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't read tag of the item", e);
+        }
+    }
+
     private static NbtWrapper<?> fromItemTag(ItemStack stack) {
         checkItemStack(stack);
         StructureModifier<NbtBase<?>> modifier = getStackModifier(stack);
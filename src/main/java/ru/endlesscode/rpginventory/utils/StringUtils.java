@@ -30,6 +30,7 @@ import ru.endlesscode.rpginventory.RPGInventory;
 import ru.endlesscode.rpginventory.inventory.InventoryManager;
 import ru.endlesscode.rpginventory.item.ItemManager;
 import ru.endlesscode.rpginventory.item.ItemStat;
+import ru.endlesscode.rpginventory.item.StatSheet;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -176,23 +177,24 @@ public class StringUtils {
                 return null;
             }
 
+            StatSheet stats = ItemManager.getStats(player);
             switch (identifier) {
                 case "damage_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.DAMAGE).toString();
+                    return stats.getModifier(ItemStat.StatType.DAMAGE).toString();
                 case "bow_damage_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.BOW_DAMAGE).toString();
+                    return stats.getModifier(ItemStat.StatType.BOW_DAMAGE).toString();
                 case "hand_damage_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.HAND_DAMAGE).toString();
+                    return stats.getModifier(ItemStat.StatType.HAND_DAMAGE).toString();
                 case "crit_damage_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.CRIT_DAMAGE).toString();
+                    return stats.getModifier(ItemStat.StatType.CRIT_DAMAGE).toString();
                 case "crit_chance":
-                    return ItemManager.getModifier(player, ItemStat.StatType.CRIT_CHANCE).toString();
+                    return stats.getModifier(ItemStat.StatType.CRIT_CHANCE).toString();
                 case "armor_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.ARMOR).toString();
+                    return stats.getModifier(ItemStat.StatType.ARMOR).toString();
                 case "speed_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.SPEED).toString();
+                    return stats.getModifier(ItemStat.StatType.SPEED).toString();
                 case "jump_bonus":
-                    return ItemManager.getModifier(player, ItemStat.StatType.JUMP).toString();
+                    return stats.getModifier(ItemStat.StatType.JUMP).toString();
             }
 
             return null;
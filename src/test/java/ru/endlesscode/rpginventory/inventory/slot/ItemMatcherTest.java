@@ -0,0 +1,64 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.inventory.slot;
+
+import org.bukkit.Material;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ItemMatcherTest {
+
+    @Test
+    public void shouldMatchPlainMaterialWithAnyData() {
+        ItemMatcher matcher = ItemMatcher.compile(Collections.singletonList("DIAMOND_SWORD"));
+
+        Assert.assertTrue(matcher.matches(Material.DIAMOND_SWORD, 0));
+        Assert.assertTrue(matcher.matches(Material.DIAMOND_SWORD, 42));
+        Assert.assertFalse(matcher.matches(Material.IRON_SWORD, 0));
+    }
+
+    @Test
+    public void shouldMatchDataOnlyInsideOfIntervals() {
+        ItemMatcher matcher = ItemMatcher.compile(Arrays.asList("DIAMOND_HOE:5", "DIAMOND_HOE:20-10", "DIAMOND_HOE:8-12"));
+
+        Assert.assertTrue(matcher.matches(Material.DIAMOND_HOE, 5));
+        Assert.assertTrue(matcher.matches(Material.DIAMOND_HOE, 8));
+        Assert.assertTrue(matcher.matches(Material.DIAMOND_HOE, 20));
+        Assert.assertFalse(matcher.matches(Material.DIAMOND_HOE, 6));
+        Assert.assertFalse(matcher.matches(Material.DIAMOND_HOE, 21));
+        Assert.assertFalse(matcher.matches(Material.DIAMOND_HOE, 4));
+    }
+
+    @Test
+    public void shouldMatchEverythingWithAll() {
+        ItemMatcher matcher = ItemMatcher.compile(Arrays.asList("BOW", "ALL"));
+
+        Assert.assertTrue(matcher.matches(Material.STONE, 0));
+    }
+
+    @Test
+    public void shouldSkipUnknownMaterials() {
+        ItemMatcher matcher = ItemMatcher.compile(Collections.singletonList("UNKNOWN_MATERIAL"));
+
+        Assert.assertFalse(matcher.matches(Material.STONE, 0));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class BinarySerializationTest {
+
+    @BeforeClass
+    public static void init() {
+        MockServer.init();
+    }
+
+    @After
+    public void tearDown() {
+        MockServer.REMOVED_MATERIALS.clear();
+    }
+
+    @Test
+    public void shouldRestoreSavedInventory() throws IOException {
+        byte[] data = save(createSnapshot(new ItemStack(Material.DIAMOND_SWORD), null, new ItemStack(Material.STONE, 32)));
+
+        InventorySnapshot snapshot = (InventorySnapshot) BinarySerialization.load(new ByteArrayInputStream(data));
+
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(3, snapshot.getBoughtSlots());
+        SlotSnapshot slot = snapshot.getSlots().get("weapon");
+        Assert.assertEquals("ACTIVE", slot.getType());
+        Assert.assertTrue(slot.isBought());
+        Assert.assertEquals(3, slot.getItems().size());
+        Assert.assertEquals(Material.DIAMOND_SWORD, slot.getItems().get(0).getType());
+        Assert.assertNull(slot.getItems().get(1));
+        Assert.assertEquals(Material.STONE, slot.getItems().get(2).getType());
+        Assert.assertEquals(32, slot.getItems().get(2).getAmount());
+    }
+
+    @Test
+    public void shouldBeDetectedAsBinary() throws IOException {
+        byte[] data = save(createSnapshot());
+
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(data));
+        Assert.assertEquals(DataFormat.BINARY, DataFormat.detect(stream));
+        Assert.assertNotNull(BinarySerialization.load(stream));
+    }
+
+    @Test
+    public void shouldReturnZeroLastUseForInventory() throws IOException {
+        byte[] data = save(createSnapshot());
+
+        Assert.assertEquals(0, BinarySerialization.readBackpackLastUse(new ByteArrayInputStream(data)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnUnknownMaterial() throws IOException {
+        byte[] data = save(createSnapshot(new ItemStack(Material.DIRT)));
+        MockServer.REMOVED_MATERIALS.add(Material.DIRT.name());
+
+        BinarySerialization.load(new ByteArrayInputStream(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnTruncatedData() throws IOException {
+        byte[] data = save(createSnapshot(new ItemStack(Material.STONE)));
+
+        BinarySerialization.load(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 5)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnWrongMagic() throws IOException {
+        byte[] data = save(createSnapshot());
+        data[0] = 0;
+
+        BinarySerialization.load(new ByteArrayInputStream(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnUnsupportedVersion() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(BinarySerialization.MAGIC);
+        output.writeByte(1);
+        output.writeByte(1);
+        output.writeInt(MockServer.DATA_VERSION);
+        output.writeInt(0);
+        output.writeShort(0);
+
+        BinarySerialization.load(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static InventorySnapshot createSnapshot(ItemStack... items) {
+        Map<String, SlotSnapshot> slots = new LinkedHashMap<>();
+        slots.put("weapon", new SlotSnapshot("weapon", "ACTIVE", true, Arrays.asList(items)));
+        slots.put("ring", new SlotSnapshot("ring", "PASSIVE", false, Collections.emptyList()));
+        return new InventorySnapshot(slots, 3);
+    }
+
+    private static byte[] save(Object data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinarySerialization.save(data, bytes);
+        return bytes.toByteArray();
+    }
+}
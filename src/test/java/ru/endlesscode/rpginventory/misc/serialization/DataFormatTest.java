@@ -0,0 +1,81 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+public class DataFormatTest {
+
+    @Test
+    public void shouldDetectBinaryByMagicNumber() throws IOException {
+        Assert.assertEquals(DataFormat.BINARY, detect(new byte[]{0x52, 0x50, 0x47, 0x49, 2, 1}));
+    }
+
+    @Test
+    public void shouldDetectYamlByRootTag() throws IOException {
+        Assert.assertEquals(DataFormat.YAML, detect("data:\n  ==: InventorySnapshot\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void shouldDetectLegacyByCompoundTag() throws IOException {
+        Assert.assertEquals(DataFormat.LEGACY, detect(new byte[]{0x0A, 0, 0}));
+    }
+
+    @Test
+    public void shouldNotDetectUnknownData() throws IOException {
+        Assert.assertEquals(DataFormat.UNKNOWN, detect(new byte[0]));
+        Assert.assertEquals(DataFormat.UNKNOWN, detect(new byte[]{0x52, 0x50}));
+        Assert.assertEquals(DataFormat.UNKNOWN, detect("dat".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(DataFormat.UNKNOWN, detect("items:\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void shouldDetectYamlWithLeadingCommentAsUnknown() throws IOException, InvalidConfigurationException {
+        byte[] data = "# Edited by hand\n\ndata:\n  last-use: 42\n".getBytes(StandardCharsets.UTF_8);
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(data));
+
+        Assert.assertEquals(DataFormat.UNKNOWN, DataFormat.detect(stream));
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        Assert.assertEquals(42, yaml.getInt(Serialization.ROOT_TAG + ".last-use"));
+    }
+
+    @Test
+    public void shouldNotChangeStreamPosition() throws IOException {
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream("data:\n".getBytes(StandardCharsets.UTF_8)));
+
+        DataFormat.detect(stream);
+
+        Assert.assertEquals('d', stream.read());
+    }
+
+    private static DataFormat detect(byte[] data) throws IOException {
+        return DataFormat.detect(new BufferedInputStream(new ByteArrayInputStream(data)));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+public class InventoryJournalTest {
+
+    private static final UUID FIRST = UUID.fromString("3f2a9c1e-5b7d-4e8f-9a0b-1c2d3e4f5a6b");
+    private static final UUID SECOND = UUID.fromString("7c6b5a4f-3e2d-4c1b-8a9f-0e1d2c3b4a59");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path journalFile;
+
+    @BeforeClass
+    public static void init() {
+        MockServer.init();
+    }
+
+    @Before
+    public void setUp() {
+        journalFile = temporaryFolder.getRoot().toPath().resolve("journal.dat");
+    }
+
+    @After
+    public void tearDown() {
+        InventoryJournal.shutdown();
+    }
+
+    @Test
+    public void shouldRecoverChangesAfterRestart() {
+        InventoryJournal.init(journalFile);
+        InventoryJournal.append(FIRST, 1, new ItemStack(Material.DIAMOND_SWORD));
+        InventoryJournal.append(FIRST, 2, new ItemStack(Material.SHIELD));
+        InventoryJournal.append(FIRST, 2, null);
+        InventoryJournal.shutdown();
+
+        InventoryJournal.init(journalFile);
+        Map<Integer, ItemStack> items = InventoryJournal.takeRecovered(FIRST);
+
+        Assert.assertEquals(2, items.size());
+        Assert.assertEquals(Material.DIAMOND_SWORD, items.get(1).getType());
+        Assert.assertTrue(items.containsKey(2));
+        Assert.assertNull(items.get(2));
+        Assert.assertTrue("Changes should be taken once", InventoryJournal.takeRecovered(FIRST).isEmpty());
+    }
+
+    @Test
+    public void shouldDropChangesBeforeCheckpoint() {
+        InventoryJournal.init(journalFile);
+        InventoryJournal.append(FIRST, 1, new ItemStack(Material.DIAMOND_SWORD));
+        InventoryJournal.append(SECOND, 1, new ItemStack(Material.BOW));
+        InventoryJournal.checkpoint(FIRST);
+        InventoryJournal.append(FIRST, 3, new ItemStack(Material.ARROW));
+        InventoryJournal.shutdown();
+
+        InventoryJournal.init(journalFile);
+        Map<Integer, ItemStack> firstItems = InventoryJournal.takeRecovered(FIRST);
+        Map<Integer, ItemStack> secondItems = InventoryJournal.takeRecovered(SECOND);
+
+        Assert.assertEquals(1, firstItems.size());
+        Assert.assertEquals(Material.ARROW, firstItems.get(3).getType());
+        Assert.assertEquals(Material.BOW, secondItems.get(1).getType());
+    }
+
+    @Test
+    public void shouldIgnoreTruncatedTail() throws IOException {
+        InventoryJournal.init(journalFile);
+        InventoryJournal.append(FIRST, 1, new ItemStack(Material.DIAMOND_SWORD));
+        InventoryJournal.shutdown();
+
+        // Server crashed while writing of the second record
+        byte[] data = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(data, data.length - 3), StandardOpenOption.APPEND);
+
+        InventoryJournal.init(journalFile);
+        Map<Integer, ItemStack> items = InventoryJournal.takeRecovered(FIRST);
+
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals(Material.DIAMOND_SWORD, items.get(1).getType());
+    }
+
+    @Test
+    public void shouldRecoverNothingFromEmptyJournal() {
+        InventoryJournal.init(journalFile);
+        InventoryJournal.shutdown();
+
+        InventoryJournal.init(journalFile);
+
+        Assert.assertTrue(InventoryJournal.takeRecovered(FIRST).isEmpty());
+    }
+}
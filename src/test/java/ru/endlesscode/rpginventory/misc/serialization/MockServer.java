@@ -0,0 +1,74 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.inventory.ItemFactory;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import ru.endlesscode.rpginventory.utils.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Minimal server, enough to serialize simple items without item meta.
+ */
+@SuppressWarnings("deprecation")
+final class MockServer {
+
+    static final int DATA_VERSION = 2975;
+
+    /**
+     * Materials that are treated as removed from the game.
+     */
+    static final Set<String> REMOVED_MATERIALS = new HashSet<>();
+
+    private MockServer() {
+    }
+
+    static synchronized void init() {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+
+        Logger logger = Logger.getLogger("RPGInventoryTest");
+        Log.init(logger);
+
+        UnsafeValues unsafe = Mockito.mock(UnsafeValues.class);
+        Mockito.when(unsafe.getDataVersion()).thenReturn(DATA_VERSION);
+        Mockito.when(unsafe.getMaterial(ArgumentMatchers.anyString(), ArgumentMatchers.anyInt())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            return REMOVED_MATERIALS.contains(name) ? null : Material.getMaterial(name);
+        });
+
+        ItemFactory itemFactory = Mockito.mock(ItemFactory.class);
+        Mockito.when(itemFactory.equals(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(true);
+
+        Server server = Mockito.mock(Server.class);
+        Mockito.when(server.getLogger()).thenReturn(logger);
+        Mockito.when(server.getUnsafe()).thenReturn(unsafe);
+        Mockito.when(server.getItemFactory()).thenReturn(itemFactory);
+        Bukkit.setServer(server);
+    }
+}
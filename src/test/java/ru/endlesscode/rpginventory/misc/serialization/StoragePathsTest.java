@@ -0,0 +1,106 @@
+/*
+ * This file is part of RPGInventory.
+ * Copyright (C) 2018 EndlessCode Group and contributors
+ *
+ * RPGInventory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * RPGInventory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with RPGInventory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ru.endlesscode.rpginventory.misc.serialization;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.endlesscode.rpginventory.misc.config.StorageLayout;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+public class StoragePathsTest {
+
+    private static final UUID ID = UUID.fromString("3f2a9c1e-5b7d-4e8f-9a0b-1c2d3e4f5a6b");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path dataPath;
+
+    @Before
+    public void setUp() {
+        dataPath = temporaryFolder.getRoot().toPath();
+    }
+
+    @Test
+    public void shouldResolveFlatLayout() {
+        StoragePaths.init(dataPath, StorageLayout.FLAT);
+
+        Assert.assertEquals(dataPath.resolve("inventories").resolve(ID + ".inv"), StoragePaths.getInventoryFile(ID));
+        Assert.assertEquals(dataPath.resolve("backpacks").resolve(ID + ".bp"), StoragePaths.getBackpackFile(ID));
+    }
+
+    @Test
+    public void shouldResolveShardedLayout() {
+        StoragePaths.init(dataPath, StorageLayout.SHARDED);
+
+        Path expected = dataPath.resolve("inventories").resolve("3f").resolve("2a").resolve(ID + ".inv");
+        Assert.assertEquals(expected, StoragePaths.getInventoryFile(ID));
+        Assert.assertEquals(expected, StoragePaths.getTarget(StoragePaths.getInventoriesFolder(), ID, ".inv"));
+    }
+
+    @Test
+    public void shouldParseIdFromFileName() {
+        Assert.assertEquals(ID, StoragePaths.parseId(dataPath.resolve(ID + ".inv"), ".inv"));
+        Assert.assertNull(StoragePaths.parseId(dataPath.resolve(ID + ".bp"), ".inv"));
+        Assert.assertNull(StoragePaths.parseId(dataPath.resolve("broken.inv"), ".inv"));
+        Assert.assertNull(StoragePaths.parseId(dataPath.resolve(ID + ".inv.1"), ".inv"));
+    }
+
+    @Test
+    public void shouldMoveFileFromOtherLayoutOnFind() throws IOException {
+        StoragePaths.init(dataPath, StorageLayout.FLAT);
+        Path flatFile = write(StoragePaths.getInventoryFile(ID), "old");
+        StoragePaths.init(dataPath, StorageLayout.SHARDED);
+
+        Path file = StoragePaths.findInventoryFile(ID);
+
+        Assert.assertEquals(StoragePaths.getInventoryFile(ID), file);
+        Assert.assertEquals("old", read(file));
+        Assert.assertTrue(Files.notExists(flatFile));
+    }
+
+    @Test
+    public void shouldKeepNewerFileOnMove() throws IOException {
+        StoragePaths.init(dataPath, StorageLayout.FLAT);
+        Path flatFile = write(StoragePaths.getInventoryFile(ID), "old");
+        StoragePaths.init(dataPath, StorageLayout.SHARDED);
+        Path target = write(StoragePaths.getInventoryFile(ID), "new");
+
+        Assert.assertFalse(StoragePaths.move(flatFile, target));
+        Assert.assertEquals("new", read(target));
+        Assert.assertTrue(Files.notExists(flatFile));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}